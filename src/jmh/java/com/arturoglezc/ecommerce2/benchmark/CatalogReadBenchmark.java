@@ -0,0 +1,77 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderSearch;
+import com.arturoglezc.ecommerce2.order.OrderService;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
+import com.arturoglezc.ecommerce2.product.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths: a product by id, which is served from the second-level cache once loaded, listing pages of
+ * orders and products at increasing offsets, and a week of a customer group's pending orders. Product pages
+ * are read as GET /api/products serves them, encoded and, for the first pages, from the page cache.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogReadBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int PRODUCT_PAGES = SeededApplication.PRODUCTS / PAGE_SIZE;
+    private static final PageRequest SEARCH_PAGE =
+            PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, OrderService.SORT_BY_ORDER_DATE));
+
+    @Benchmark
+    public Product getProductById(SeededApplication application) {
+        return application.bean(ProductService.class).getProductById(application.randomProductId());
+    }
+
+    @Benchmark
+    public CountedPage<Order> listOrders(SeededApplication application, Offset offset) {
+        return application.bean(OrderService.class).getAllOrders(PageRequest.of(offset.page, PAGE_SIZE), null);
+    }
+
+    @Benchmark
+    public ProductPageCache.EncodedPage listProducts(SeededApplication application, Offset offset) {
+        return application.bean(ProductService.class)
+                .getEncodedProducts(PageRequest.of(Math.min(offset.page, PRODUCT_PAGES - 1), PAGE_SIZE));
+    }
+
+    @Benchmark
+    public CountedPage<Order> searchOrders(SeededApplication application) {
+        LocalDateTime to = LocalDateTime.now();
+        OrderSearch search = new OrderSearch(List.of(OrderStatus.PENDING), null, "Customer 4", to.minusWeeks(1), to);
+        return application.bean(OrderService.class).searchOrders(search, SEARCH_PAGE);
+    }
+
+    /**
+     * Page numbers of the listings; the last one is the end of the seeded orders.
+     */
+    @State(Scope.Benchmark)
+    public static class Offset {
+
+        @Param({"0", "10", "100", "999"})
+        public int page;
+    }
+}
@@ -0,0 +1,102 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups served by the indexes of the V2 migration, with the indexes as migrated and with them dropped.
+ * The query plans of both variants are printed when each fork starts.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupIndexBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final String ORDERS_BY_STATUS =
+            "SELECT id FROM orders WHERE status = ? ORDER BY order_date FETCH FIRST 20 ROWS ONLY";
+
+    @Benchmark
+    public List<OrderItem> findItemsByOrder(SeededApplication application, Indexes indexes) {
+        return application.bean(OrderItemRepository.class).findByOrderId(application.randomOrderId());
+    }
+
+    @Benchmark
+    public List<OrderItem> findItemsByProduct(SeededApplication application, Indexes indexes) {
+        return application.bean(OrderItemRepository.class).findByProductId(application.randomProductId());
+    }
+
+    @Benchmark
+    public boolean existsItemForProduct(SeededApplication application, Indexes indexes) {
+        return application.bean(OrderItemRepository.class).existsByProductId(application.randomProductId());
+    }
+
+    @Benchmark
+    public List<Long> listOrdersByStatus(SeededApplication application, Indexes indexes) {
+        OrderStatus status = STATUSES[ThreadLocalRandom.current().nextInt(STATUSES.length)];
+        return application.bean(JdbcTemplate.class).queryForList(ORDERS_BY_STATUS, Long.class, status.name());
+    }
+
+    @Benchmark
+    public List<Order> listOrdersByDateCursor(SeededApplication application, Indexes indexes) {
+        LocalDateTime after = LocalDateTime.now().minusDays(ThreadLocalRandom.current().nextInt(365));
+        return application.bean(OrderRepository.class).findByOrderDateAfter(after, 0L, Limit.of(PAGE_SIZE));
+    }
+
+    /**
+     * Whether the V2 indexes are kept. Each value runs in its own fork, so dropping them only affects that fork.
+     */
+    @State(Scope.Benchmark)
+    public static class Indexes {
+
+        private static final List<String> DROPPED = List.of(
+                "idx_order_item_order_id", "idx_order_item_product_id",
+                "idx_orders_status_order_date", "idx_orders_order_date");
+
+        private static final List<String> PLANNED = List.of(
+                "SELECT * FROM order_item WHERE order_id = 1",
+                "SELECT * FROM order_item WHERE product_id = 1",
+                "SELECT id FROM orders WHERE status = 'PAID' ORDER BY order_date FETCH FIRST 20 ROWS ONLY",
+                "SELECT id FROM orders WHERE order_date > CURRENT_TIMESTAMP ORDER BY order_date, id FETCH FIRST 20 ROWS ONLY");
+
+        @Param({"true", "false"})
+        public boolean indexed;
+
+        @Setup(Level.Trial)
+        public void prepare(SeededApplication application) {
+            JdbcTemplate jdbcTemplate = application.bean(JdbcTemplate.class);
+            if (!indexed) {
+                DROPPED.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index));
+            }
+            for (String query : PLANNED) {
+                System.out.println("EXPLAIN " + query);
+                jdbcTemplate.queryForList("EXPLAIN " + query, String.class).forEach(System.out::println);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write paths: a one-item checkout, adding an item to an existing order, and replacing a product's stock.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderWriteBenchmark {
+
+    private static final double UNIT_PRICE = 9.99;
+
+    @Benchmark
+    public Order checkoutSingleItem(SeededApplication application) {
+        CheckoutRequest request = new CheckoutRequest("Benchmark customer", LocalDateTime.now(), OrderStatus.PENDING,
+                List.of(new CheckoutRequest.Item(application.randomProductId(), 1, UNIT_PRICE)));
+        return application.bean(OrderItemService.class).checkout(request);
+    }
+
+    @Benchmark
+    public OrderItem createOrderItem(SeededApplication application) {
+        Order order = new Order();
+        order.setId(application.randomOrderId());
+        Product product = new Product();
+        product.setId(application.randomProductId());
+        return application.bean(OrderItemService.class).createOrderItem(new OrderItem(order, product, 1, UNIT_PRICE));
+    }
+
+    @Benchmark
+    public Product updateStock(SeededApplication application) {
+        Long productId = application.randomProductId();
+        Product product = new Product("Product " + productId, UNIT_PRICE,
+                SeededApplication.STOCK - ThreadLocalRandom.current().nextInt(1_000));
+        return application.bean(ProductService.class).updateProduct(productId, product);
+    }
+}
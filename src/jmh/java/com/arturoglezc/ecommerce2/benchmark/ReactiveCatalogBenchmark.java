@@ -0,0 +1,125 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The blocking product endpoints against their reactive counterparts, over HTTP from {@code @Threads} concurrent
+ * clients (change it with {@code -t}): a page of 100 products, and the whole catalog, which a blocking client walks
+ * slice by slice and a reactive one reads as a single NDJSON stream. With the {@code gc} profiler of the benchmark
+ * profile, {@code gc.alloc.rate.norm} is the memory each request allocates, client and server together; the peak
+ * number of live threads of each iteration is printed, showing how many threads that concurrency held.
+ * <p>
+ * The test profile runs R2DBC on embedded H2, whose driver does its work on the calling thread, so this measures
+ * the cost of the reactive stack rather than the threads it saves while waiting on a networked database; point
+ * {@code spring.datasource.url} and {@code spring.r2dbc.url} at PostgreSQL for that.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactiveCatalogBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int SLICE_SIZE = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededApplication application) {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + application.port();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakThreads() {
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakThreads() {
+        System.out.println("Peak live threads: " + threads.getPeakThreadCount());
+    }
+
+    @Benchmark
+    public JsonNode blockingPage() throws IOException, InterruptedException {
+        return objectMapper.readTree(get("/api/products?after=&size=" + PAGE_SIZE));
+    }
+
+    @Benchmark
+    public JsonNode reactivePage() throws IOException, InterruptedException {
+        return objectMapper.readTree(get("/api/reactive/products?page=0&size=" + PAGE_SIZE));
+    }
+
+    @Benchmark
+    public int blockingCatalog() throws IOException, InterruptedException {
+        int products = 0;
+        String after = "";
+        while (after != null) {
+            JsonNode slice = objectMapper.readTree(get("/api/products?size=" + SLICE_SIZE + "&after="
+                    + URLEncoder.encode(after, StandardCharsets.UTF_8)));
+            products += slice.get("content").size();
+            after = slice.get("hasNext").asBoolean() ? slice.get("next").asText() : null;
+        }
+        return products;
+    }
+
+    @Benchmark
+    public int reactiveCatalog() throws IOException, InterruptedException {
+        int products = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                send("/api/reactive/products/stream", HttpResponse.BodyHandlers.ofInputStream()),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                objectMapper.readTree(line);
+                products++;
+            }
+        }
+        return products;
+    }
+
+    private byte[] get(String path) throws IOException, InterruptedException {
+        return send(path, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private <T> T send(String path, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        HttpResponse<T> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(), bodyHandler);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,107 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.Ecommerce2Application;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.order.OrderTotalsBackfill;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The application on the in-memory H2 database of the test profile, started once per fork and seeded with
+ * {@link #PRODUCTS} products and {@link #ORDERS} orders of one to four items each.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    public static final int PRODUCTS = 1_000;
+    public static final int ORDERS = 20_000;
+    public static final int STOCK = 1_000_000_000;
+
+    private static final int MAX_ITEMS_PER_ORDER = 4;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private ConfigurableApplicationContext context;
+    private List<Long> productIds;
+    private List<Long> orderIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(Ecommerce2Application.class)
+                .profiles("test")
+                .run("--spring.main.banner-mode=off",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--outbox.relay.enabled=true");
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public Long randomProductId() {
+        return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+    }
+
+    public Long randomOrderId() {
+        return orderIds.get(ThreadLocalRandom.current().nextInt(orderIds.size()));
+    }
+
+    private void seed() {
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        Random random = new Random(42);
+
+        List<Object[]> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Object[]{"Product " + i, 1 + random.nextInt(50_000) / 100.0, STOCK});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product (name, price, stock) VALUES (?, ?, ?)", products);
+        productIds = jdbcTemplate.queryForList("SELECT id FROM product ORDER BY id", Long.class);
+
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Object[]> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(new Object[]{"Customer " + random.nextInt(5_000),
+                    Timestamp.valueOf(start.plusMinutes(i * 26L)), STATUSES[random.nextInt(STATUSES.length)].name()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (customer_name, order_date, status) VALUES (?, ?, ?)", orders);
+        orderIds = jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY id", Long.class);
+
+        List<Object[]> items = new ArrayList<>(ORDERS * MAX_ITEMS_PER_ORDER);
+        for (Long orderId : orderIds) {
+            for (int i = 1 + random.nextInt(MAX_ITEMS_PER_ORDER); i > 0; i--) {
+                items.add(new Object[]{orderId, productIds.get(random.nextInt(PRODUCTS)), 1 + random.nextInt(5),
+                        1 + random.nextInt(50_000) / 100.0});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO order_item (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)",
+                items);
+
+        bean(OrderTotalsBackfill.class).backfill();
+    }
+}
@@ -0,0 +1,79 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding with the application's {@link ObjectMapper}: a page of orders as the order list returns it, and a
+ * page worth of order items with their order and product, as the entity graph would be written.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectMapper objectMapper;
+    private Page<Order> orderPage;
+    private List<OrderItem> orderItems;
+
+    @Setup
+    public void setUp(SeededApplication application) {
+        objectMapper = application.bean(ObjectMapper.class);
+        List<Order> orders = new ArrayList<>(PAGE_SIZE);
+        orderItems = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Order order = new Order("Customer " + i, LocalDateTime.now().minusDays(i), OrderStatus.PAID);
+            order.setId((long) i + 1);
+            order.setVersion(0L);
+            order.setItemCount(1);
+            order.setTotalAmount(19.98);
+            orders.add(order);
+
+            Product product = new Product("Product " + i, 9.99, 100);
+            product.setId((long) i + 1);
+            product.setVersion(0L);
+            OrderItem orderItem = new OrderItem(order, product, 2, 9.99);
+            orderItem.setId((long) i + 1);
+            orderItem.setVersion(0L);
+            orderItems.add(orderItem);
+        }
+        orderPage = new PageImpl<>(orders, PageRequest.of(0, PAGE_SIZE), 20_000);
+    }
+
+    @Benchmark
+    public byte[] encodeOrderPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderPage);
+    }
+
+    @Benchmark
+    public byte[] encodeOrderItems() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderItems);
+    }
+}
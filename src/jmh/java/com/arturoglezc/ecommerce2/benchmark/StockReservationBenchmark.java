@@ -0,0 +1,82 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent order items for one hot product: through the guarded stock UPDATE of {@link OrderItemService},
+ * and through the path it replaced, made safe with a row lock, which reads the product for update and saves
+ * it back. OrderItemConcurrencyTest checks that both sell the same stock without overselling.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class StockReservationBenchmark {
+
+    private static final double UNIT_PRICE = 9.99;
+
+    @Benchmark
+    public OrderItem guardedUpdate(SeededApplication application, HotProduct hot) {
+        Order order = new Order();
+        order.setId(hot.orderId);
+        Product product = new Product();
+        product.setId(hot.productId);
+        return application.bean(OrderItemService.class).createOrderItem(new OrderItem(order, product, 1, UNIT_PRICE));
+    }
+
+    @Benchmark
+    public OrderItem lockAndSave(SeededApplication application, HotProduct hot) {
+        ProductRepository productRepository = application.bean(ProductRepository.class);
+        return application.bean(TransactionTemplate.class).execute(status -> {
+            Product product = productRepository.findByIdForUpdate(hot.productId).orElseThrow();
+            if (product.getStock() < 1) {
+                throw new IllegalStateException("Out of stock");
+            }
+            product.setStock(product.getStock() - 1);
+            productRepository.save(product);
+            Order order = application.bean(OrderRepository.class).getReferenceById(hot.orderId);
+            return application.bean(OrderItemRepository.class).save(new OrderItem(order, product, 1, UNIT_PRICE));
+        });
+    }
+
+    /**
+     * The product every thread orders, and the pending order the items are added to.
+     */
+    @State(Scope.Benchmark)
+    public static class HotProduct {
+
+        private Long productId;
+        private Long orderId;
+
+        @Setup(Level.Trial)
+        public void pick(SeededApplication application) {
+            productId = application.randomProductId();
+            orderId = application.bean(JdbcTemplate.class)
+                    .queryForObject("SELECT MIN(id) FROM orders WHERE status = 'PENDING'", Long.class);
+        }
+    }
+}
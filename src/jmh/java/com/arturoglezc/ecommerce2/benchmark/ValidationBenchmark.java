@@ -0,0 +1,73 @@
+package com.arturoglezc.ecommerce2.benchmark;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.product.Product;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of the request bodies the controllers take with {@code @Valid}, using the application's
+ * {@link Validator}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private static final int CHECKOUT_ITEMS = 10;
+
+    private Validator validator;
+    private Product product;
+    private OrderItem orderItem;
+    private CheckoutRequest checkoutRequest;
+
+    @Setup
+    public void setUp(SeededApplication application) {
+        validator = application.bean(Validator.class);
+        product = new Product("Product", 9.99, 100);
+        Order order = new Order("Customer", LocalDateTime.now(), OrderStatus.PENDING);
+        orderItem = new OrderItem(order, product, 2, 9.99);
+        List<CheckoutRequest.Item> items = new ArrayList<>(CHECKOUT_ITEMS);
+        for (long i = 1; i <= CHECKOUT_ITEMS; i++) {
+            items.add(new CheckoutRequest.Item(i, 1, 9.99));
+        }
+        checkoutRequest = new CheckoutRequest("Customer", LocalDateTime.now(), OrderStatus.PENDING, items);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validateProduct() {
+        return validator.validate(product);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderItem>> validateOrderItem() {
+        return validator.validate(orderItem);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CheckoutRequest>> validateCheckoutRequest() {
+        return validator.validate(checkoutRequest);
+    }
+}
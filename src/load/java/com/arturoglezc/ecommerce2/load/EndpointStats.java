@@ -0,0 +1,65 @@
+package com.arturoglezc.ecommerce2.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and outcomes of one endpoint. Latencies are recorded in microseconds from the time a request was
+ * scheduled to be sent, so a slow server also counts the time requests waited behind it.
+ */
+class EndpointStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    final Operation operation;
+    final AtomicLong succeeded = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+    final AtomicLong conflicts = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    EndpointStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    void record(long latencyMicros, int status) {
+        recorder.recordValue(latencyMicros);
+        if (status >= 200 && status < 300) {
+            succeeded.incrementAndGet();
+        } else if (status == 400) {
+            rejected.incrementAndGet();
+        } else if (status == 409) {
+            conflicts.incrementAndGet();
+        } else {
+            errors.incrementAndGet();
+        }
+    }
+
+    void recordFailure(long latencyMicros) {
+        recorder.recordValue(latencyMicros);
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Takes the latencies recorded since the previous call, tagged with the operation, and adds them to the total.
+     */
+    Histogram takeInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        interval.setTag(operation.label);
+        total.add(interval);
+        return interval;
+    }
+
+    Histogram total() {
+        return total;
+    }
+
+    long count() {
+        return succeeded.get() + rejected.get() + conflicts.get() + errors.get();
+    }
+}
@@ -0,0 +1,332 @@
+package com.arturoglezc.ecommerce2.load;
+
+import com.arturoglezc.ecommerce2.Ecommerce2Application;
+import com.arturoglezc.ecommerce2.outbox.OutboxRelay;
+import com.arturoglezc.ecommerce2.outbox.OutboxRelayStatistics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test of the booted application on the in-memory H2 database of the test profile. Requests are
+ * sent at a fixed arrival rate whatever the response times, in the mix given by {@code load.mix}. Order items are
+ * added against a few hot products with limited stock, so stock rejections show up under contention. Prints
+ * throughput, latency percentiles and outcomes per endpoint, and writes every endpoint's latencies per second
+ * to an HdrHistogram log.
+ *
+ * <p>Settings (system properties): {@code load.rate} requests per second, {@code load.warmup} and
+ * {@code load.duration} in seconds, {@code load.mix}, {@code load.hot-skus}, {@code load.hot-stock},
+ * {@code load.histogram-log} and {@code load.max-error-rate}, above which the run exits with status 1.
+ */
+public class LoadGenerator {
+
+    private static final int CATALOG_PRODUCTS = 500;
+    private static final int CATALOG_STOCK = 1_000_000_000;
+    private static final int ORDERS = 200;
+    private static final int BROWSE_PAGES = 10;
+    private static final int PAGE_SIZE = 20;
+    private static final double UNIT_PRICE = 9.99;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String JSON = "application/json";
+    private static final String CHECKOUT_BODY = "{\"customerName\":\"Load customer\",\"orderDate\":\"%s\"," +
+            "\"status\":\"PENDING\",\"items\":[{\"productId\":%d,\"quantity\":1,\"unitPrice\":" + UNIT_PRICE + "}]}";
+    private static final String ORDER_ITEM_BODY = "{\"order\":{\"id\":%d},\"product\":{\"id\":%d}," +
+            "\"quantity\":%d,\"unitPrice\":" + UNIT_PRICE + "}";
+
+    private final int rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Operation.Mix mix;
+    private final int hotSkus;
+    private final int hotStock;
+    private final File histogramLog;
+    private final double maxErrorRate;
+
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final Queue<CreatedItem> createdItems = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private ObjectMapper objectMapper;
+    private String baseUrl;
+    private List<Long> catalogProductIds;
+    private List<Long> hotProductIds;
+    private List<Long> orderIds;
+    private volatile boolean measuring;
+
+    LoadGenerator() {
+        rate = Integer.getInteger("load.rate", 200);
+        warmup = Duration.ofSeconds(Long.getLong("load.warmup", 10));
+        duration = Duration.ofSeconds(Long.getLong("load.duration", 60));
+        mix = Operation.Mix.parse(System.getProperty("load.mix",
+                "browse=40,view-product=20,checkout=10,add-item=20,update-item=5,delete-item=5"));
+        hotSkus = Integer.getInteger("load.hot-skus", 5);
+        hotStock = Integer.getInteger("load.hot-stock", 2_000);
+        histogramLog = new File(System.getProperty("load.histogram-log", "target/load/checkout-load.hlog"));
+        maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats(operation));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Ecommerce2Application.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--outbox.relay.enabled=true");
+        boolean passed;
+        try {
+            LoadGenerator generator = new LoadGenerator();
+            generator.start(context);
+            passed = generator.run();
+            reportOutbox(context.getBean(OutboxRelay.class).getStatistics());
+        } finally {
+            context.close();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private void start(ConfigurableApplicationContext context) {
+        objectMapper = context.getBean(ObjectMapper.class);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> products = new ArrayList<>(CATALOG_PRODUCTS + hotSkus);
+        for (int i = 0; i < CATALOG_PRODUCTS; i++) {
+            products.add(new Object[]{"Catalog product " + i, UNIT_PRICE, CATALOG_STOCK});
+        }
+        for (int i = 0; i < hotSkus; i++) {
+            products.add(new Object[]{"Hot product " + i, UNIT_PRICE, hotStock});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product (name, price, stock) VALUES (?, ?, ?)", products);
+        List<Long> productIds = jdbcTemplate.queryForList("SELECT id FROM product ORDER BY id", Long.class);
+        catalogProductIds = productIds.subList(0, CATALOG_PRODUCTS);
+        hotProductIds = productIds.subList(CATALOG_PRODUCTS, productIds.size());
+
+        List<Object[]> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(new Object[]{"Customer " + i, LocalDateTime.now(), "PENDING"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (customer_name, order_date, status) VALUES (?, ?, ?)", orders);
+        orderIds = jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY id", Long.class);
+    }
+
+    private boolean run() throws IOException, InterruptedException {
+        System.out.printf("Load: %d req/s for %ds after %ds of warmup against %s, mix %s%n",
+                rate, duration.toSeconds(), warmup.toSeconds(), baseUrl, System.getProperty("load.mix", "default"));
+        Random random = new Random();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        histogramLog.getAbsoluteFile().getParentFile().mkdirs();
+        ScheduledExecutorService logScheduler = Executors.newSingleThreadScheduledExecutor();
+        HistogramLogWriter logWriter = new HistogramLogWriter(histogramLog);
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                if (!measuring && intended >= measureFrom) {
+                    startMeasuring(logWriter, logScheduler);
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                send(mix.next(random), intended);
+            }
+            long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+            while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(10);
+            }
+            logScheduler.shutdown();
+            logScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            writeIntervals(logWriter);
+        } finally {
+            logWriter.close();
+        }
+        return report();
+    }
+
+    private void startMeasuring(HistogramLogWriter logWriter, ScheduledExecutorService logScheduler) {
+        measuring = true;
+        long startMillis = System.currentTimeMillis();
+        for (EndpointStats endpointStats : stats.values()) {
+            endpointStats.takeInterval().reset();
+            endpointStats.total().reset();
+        }
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(startMillis);
+        logWriter.setBaseTime(startMillis);
+        logWriter.outputLegend();
+        logScheduler.scheduleAtFixedRate(() -> writeIntervals(logWriter), 1, 1, TimeUnit.SECONDS);
+    }
+
+    private synchronized void writeIntervals(HistogramLogWriter logWriter) {
+        for (EndpointStats endpointStats : stats.values()) {
+            Histogram interval = endpointStats.takeInterval();
+            if (interval.getTotalCount() > 0) {
+                logWriter.outputIntervalHistogram(interval);
+            }
+        }
+    }
+
+    private void send(Operation operation, long intended) {
+        CreatedItem item = null;
+        if (operation == Operation.UPDATE_ITEM || operation == Operation.DELETE_ITEM) {
+            item = createdItems.poll();
+            if (item == null) {
+                operation = Operation.ADD_ITEM;
+            }
+        }
+        HttpRequest request = request(operation, item);
+        Operation sent = operation;
+        CreatedItem sentItem = item;
+        boolean measured = measuring;
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, failure) -> {
+                    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                    if (measured) {
+                        if (failure != null) {
+                            stats.get(sent).recordFailure(latencyMicros);
+                        } else {
+                            stats.get(sent).record(latencyMicros, response.statusCode());
+                        }
+                    }
+                    if (failure == null) {
+                        afterResponse(sent, sentItem, response);
+                    } else if (sentItem != null && sent == Operation.UPDATE_ITEM) {
+                        createdItems.add(sentItem);
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    private HttpRequest request(Operation operation, CreatedItem item) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        return switch (operation) {
+            case BROWSE -> builder.uri(uri("/api/products?page=" + random.nextInt(BROWSE_PAGES) + "&size=" + PAGE_SIZE))
+                    .GET().build();
+            case VIEW_PRODUCT -> builder.uri(uri("/api/products/" + pick(catalogProductIds))).GET().build();
+            case CHECKOUT -> builder.uri(uri("/api/orders/checkout"))
+                    .header("Content-Type", JSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            CHECKOUT_BODY.formatted(LocalDateTime.now(), pick(catalogProductIds))))
+                    .build();
+            case ADD_ITEM -> builder.uri(uri("/api/order-items"))
+                    .header("Content-Type", JSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            ORDER_ITEM_BODY.formatted(pick(orderIds), pick(hotProductIds), 1)))
+                    .build();
+            case UPDATE_ITEM -> builder.uri(uri("/api/order-items/" + item.id()))
+                    .header("Content-Type", JSON)
+                    .PUT(HttpRequest.BodyPublishers.ofString(
+                            ORDER_ITEM_BODY.formatted(item.orderId(), item.productId(), 1 + random.nextInt(3))))
+                    .build();
+            case DELETE_ITEM -> builder.uri(uri("/api/order-items/" + item.id())).DELETE().build();
+        };
+    }
+
+    private void afterResponse(Operation operation, CreatedItem item, HttpResponse<byte[]> response) {
+        if (operation == Operation.UPDATE_ITEM) {
+            createdItems.add(item);
+        } else if (operation == Operation.ADD_ITEM && response.statusCode() == 201) {
+            try {
+                createdItems.add(objectMapper.readValue(response.body(), CreatedItem.class));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private boolean report() {
+        double seconds = duration.toNanos() / 1e9;
+        long requests = 0;
+        long errors = 0;
+        System.out.printf("%n%-28s %8s %9s %9s %9s %9s %9s %9s %9s %9s %8s%n", "endpoint", "count", "req/s",
+                "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms", "400 %", "409 %", "errors");
+        for (EndpointStats endpointStats : stats.values()) {
+            long count = endpointStats.count();
+            if (count == 0) {
+                continue;
+            }
+            Histogram latencies = endpointStats.total();
+            System.out.printf("%-28s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                    endpointStats.operation.endpoint, count, count / seconds,
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(95)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()),
+                    100.0 * endpointStats.rejected.get() / count, 100.0 * endpointStats.conflicts.get() / count,
+                    endpointStats.errors.get());
+            requests += count;
+            errors += endpointStats.errors.get();
+        }
+        double errorRate = requests == 0 ? 0 : (double) errors / requests;
+        System.out.printf("%nTotal: %d requests, %.1f req/s, error rate %.4f (max %.4f). Histogram log: %s%n",
+                requests, requests / seconds, errorRate, maxErrorRate, histogramLog.getAbsolutePath());
+        return errorRate <= maxErrorRate;
+    }
+
+    private static void reportOutbox(OutboxRelayStatistics outbox) {
+        System.out.printf("Outbox: %d events in %d batches, lag last %d ms / max %d ms, %.0f events/s in the last drain, "
+                        + "oldest pending %d ms%n", outbox.published(), outbox.batches(), outbox.lastLagMillis(),
+                outbox.maxLagMillis(), outbox.lastEventsPerSecond(), outbox.oldestPendingAgeMillis());
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static Long pick(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * The fields of a created order item needed to update or delete it.
+     */
+    record CreatedItem(Long id, Long orderId, Long productId) {
+    }
+}
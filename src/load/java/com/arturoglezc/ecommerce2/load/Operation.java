@@ -0,0 +1,74 @@
+package com.arturoglezc.ecommerce2.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The requests the load generator mixes. {@link #label} is the name used in {@code load.mix} and as the tag of
+ * the endpoint's histograms.
+ */
+enum Operation {
+    BROWSE("browse", "GET /api/products"),
+    VIEW_PRODUCT("view-product", "GET /api/products/{id}"),
+    CHECKOUT("checkout", "POST /api/orders/checkout"),
+    ADD_ITEM("add-item", "POST /api/order-items"),
+    UPDATE_ITEM("update-item", "PUT /api/order-items/{id}"),
+    DELETE_ITEM("delete-item", "DELETE /api/order-items/{id}");
+
+    final String label;
+    final String endpoint;
+
+    Operation(String label, String endpoint) {
+        this.label = label;
+        this.endpoint = endpoint;
+    }
+
+    static Operation of(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation in load.mix: " + label);
+    }
+
+    /**
+     * A weighted choice of operations, parsed from {@code label=weight} pairs separated by commas.
+     */
+    record Mix(List<Operation> operations, int[] cumulativeWeights) {
+
+        static Mix parse(String mix) {
+            List<Operation> operations = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split("=");
+                int weight = Integer.parseInt(parts[1].trim());
+                if (weight > 0) {
+                    operations.add(of(parts[0].trim()));
+                    weights.add(weight);
+                }
+            }
+            if (operations.isEmpty()) {
+                throw new IllegalArgumentException("load.mix has no operation with a positive weight");
+            }
+            int[] cumulativeWeights = new int[weights.size()];
+            int total = 0;
+            for (int i = 0; i < weights.size(); i++) {
+                total += weights.get(i);
+                cumulativeWeights[i] = total;
+            }
+            return new Mix(operations, cumulativeWeights);
+        }
+
+        Operation next(Random random) {
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (pick < cumulativeWeights[i]) {
+                    return operations.get(i);
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.arturoglezc.ecommerce2;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "com.arturoglezc.ecommerce2")
+@EnableScheduling
 public class Ecommerce2Application {
 
 	public static void main(String[] args) {
@@ -0,0 +1,80 @@
+package com.arturoglezc.ecommerce2.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Pins the reads of a request to the primary when it writes, or when its client wrote less than
+ * {@code datasource.replica.read-your-writes-window} ago, so a client never reads from a replica that has not
+ * caught up with its own changes yet. A write answers with a {@value #COOKIE} cookie holding its time, and the
+ * client's later requests carry it back; the pin travels with the client, so every instance behind a load
+ * balancer honours it and clients sharing an address are not pinned together. A time further than the window
+ * from now, in either direction, pins nothing.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "last-write";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final ReplicaDataSource replicaDataSource;
+    private final Duration window;
+
+    public ReadYourWritesFilter(ReplicaDataSource replicaDataSource, Duration window) {
+        this.replicaDataSource = replicaDataSource;
+        this.window = window;
+    }
+
+    /**
+     * The cookie is set before the request is handled, as the response may be committed by then; a write that
+     * fails pins its client too, which only costs its reads a trip to the primary.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, String.valueOf(System.currentTimeMillis()))
+                    .path("/")
+                    .maxAge(window)
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+        }
+        if (write || wroteRecently(request)) {
+            replicaDataSource.pinToPrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            replicaDataSource.unpin();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.abs(System.currentTimeMillis() - Long.parseLong(cookie.getValue())) < window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
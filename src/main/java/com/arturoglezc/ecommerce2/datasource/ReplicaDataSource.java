@@ -0,0 +1,180 @@
+package com.arturoglezc.ecommerce2.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The data source of read-only transactions: hands out connections of the healthy replicas in turn, and of the
+ * primary when none is healthy or the current thread is pinned to it, as a client is for a while after its own
+ * writes. A replica is marked down as soon as it fails to give a connection and is checked again every
+ * {@code datasource.replica.health-check-interval-ms}.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    private static final String READS = "datasource.replica.reads";
+    private static final String ROUTE = "route";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Boolean> pinnedToPrimary = ThreadLocal.withInitial(() -> false);
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    /**
+     * {@code replicas} maps the name of each replica to its data source, in the order they are tried.
+     */
+    public ReplicaDataSource(DataSource primary, Map<String, DataSource> replicas, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        replicaReads = meterRegistry.counter(READS, ROUTE, "replica");
+        pinnedReads = meterRegistry.counter(READS, ROUTE, "pinned");
+        fallbackReads = meterRegistry.counter(READS, ROUTE, "fallback");
+        Gauge.builder("datasource.replica.healthy", this, source -> source.getHealthyReplicas().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    /**
+     * Routed like {@link #getConnection()}, asking the chosen data source for a connection of the given user. A
+     * data source that does not support it, as Hikari pools do not, fails the call without being marked down.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Sends the read-only transactions of the current thread to the primary until {@link #unpin()}.
+     */
+    public void pinToPrimary() {
+        pinnedToPrimary.set(true);
+    }
+
+    public void unpin() {
+        pinnedToPrimary.remove();
+    }
+
+    public boolean isPinnedToPrimary() {
+        return pinnedToPrimary.get();
+    }
+
+    /**
+     * Validates a connection of every replica and marks it up or down accordingly.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    markUp(replica);
+                } else {
+                    markDown(replica, null);
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    public List<String> getHealthyReplicas() {
+        return replicas.stream().filter(replica -> replica.healthy).map(replica -> replica.name).toList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (pinnedToPrimary.get()) {
+            pinnedReads.increment();
+            return readOnly(source.connect(primary));
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = source.connect(replica.dataSource);
+                replicaReads.increment();
+                return connection;
+            } catch (SQLFeatureNotSupportedException e) {
+                throw e;
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+        fallbackReads.increment();
+        return readOnly(source.connect(primary));
+    }
+
+    /**
+     * Read-only work that falls back to the primary must not write there either.
+     */
+    private static Connection readOnly(Connection connection) throws SQLException {
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    private static void markUp(Replica replica) {
+        if (!replica.healthy) {
+            replica.healthy = true;
+            log.info("Replica {} is up", replica.name);
+        }
+    }
+
+    private static void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Replica {} is down, its reads go to the other replicas or the primary", replica.name, cause);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
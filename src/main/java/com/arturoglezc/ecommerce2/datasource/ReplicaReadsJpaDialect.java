@@ -0,0 +1,62 @@
+package com.arturoglezc.ecommerce2.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps rows read from a replica out of the second-level cache: a read-only transaction that is not pinned to
+ * the primary reads the cache but does not fill it, so a replica lagging behind a write cannot put the row from
+ * before the write back into the cache that write evicted. The store mode is bypassed as well, as
+ * {@code EntityManager.find} takes its cache mode from it rather than from the session.
+ */
+public class ReplicaReadsJpaDialect extends HibernateJpaDialect {
+
+    private final ReplicaDataSource replicaDataSource;
+
+    public ReplicaReadsJpaDialect(ReplicaDataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || replicaDataSource.isPinnedToPrimary()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        Object previousStoreMode = session.getProperties().get(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE);
+        session.setCacheMode(CacheMode.GET);
+        session.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaReadData(transactionData, session, previousCacheMode, previousStoreMode);
+    }
+
+    /**
+     * Restores the cache mode, as the session can outlive the transaction when it is opened in view.
+     */
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaReadData replicaRead) {
+            replicaRead.session().setCacheMode(replicaRead.previousCacheMode());
+            replicaRead.session().setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE,
+                    replicaRead.previousStoreMode() != null ? replicaRead.previousStoreMode() : CacheStoreMode.USE);
+            super.cleanupTransaction(replicaRead.transactionData());
+            return;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private record ReplicaReadData(Object transactionData, Session session, CacheMode previousCacheMode,
+                                   Object previousStoreMode) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.arturoglezc.ecommerce2.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the data source when {@code datasource.replica.urls} lists read replicas. Connections are taken lazily,
+ * once the transaction they serve has started, so {@code @Transactional(readOnly = true)} work gets a
+ * {@link ReplicaDataSource} connection and everything else, Flyway and the stock ledger included, one of the
+ * primary's pool declared by {@link DataSourceConfiguration}. Rows read from a replica are kept out of the
+ * second-level cache by {@link ReplicaReadsJpaDialect}.
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.urls")
+public class ReplicaRoutingConfiguration {
+
+    private static final String REPLICA_POOL_NAME = "replica-";
+
+    /**
+     * Replica pools use the primary's credentials unless {@code datasource.replica.username} is set. They start
+     * without connecting, so a replica that is down only delays its first read by {@code connection-timeout}.
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${datasource.replica.urls}") List<String> urls,
+                                               @Value("${datasource.replica.username:#{null}}") String username,
+                                               @Value("${datasource.replica.password:#{null}}") String password,
+                                               @Value("${datasource.replica.connection-timeout:1s}") Duration connectionTimeout) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(username != null ? username : properties.determineUsername())
+                    .password(username != null ? password : properties.determinePassword())
+                    .build();
+            replica.setPoolName(REPLICA_POOL_NAME + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Installs {@link ReplicaReadsJpaDialect} once the transaction manager is initialized, as initializing it
+     * takes the dialect of the entity manager factory.
+     */
+    @Bean
+    public static BeanPostProcessor replicaReadsJpaDialectInstaller(ObjectProvider<ReplicaDataSource> replicaDataSource) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager transactionManager) {
+                    transactionManager.setJpaDialect(new ReplicaReadsJpaDialect(replicaDataSource.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaDataSource replicaDataSource,
+                                                     @Value("${datasource.replica.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWritesFilter(replicaDataSource, window);
+    }
+}
@@ -0,0 +1,64 @@
+package com.arturoglezc.ecommerce2.etag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Strong entity tags built from the version of a resource, and the {@code If-Match} check of conditional updates.
+ */
+public final class ETags {
+
+    private static final String PRECONDITION_FAILED = "Resource was modified since it was read";
+
+    private ETags() {
+    }
+
+    public static String of(Object... parts) {
+        return Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "\"", "\""));
+    }
+
+    /**
+     * Rejects an update with 412 unless {@code ifMatch} is absent, {@code *} or lists {@code currentETag}.
+     * Weak tags never match.
+     */
+    public static void checkIfMatch(String ifMatch, String currentETag) {
+        if (!isConditional(ifMatch)) {
+            return;
+        }
+        boolean matches = Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .anyMatch(currentETag::equals);
+        if (!matches) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, PRECONDITION_FAILED);
+        }
+    }
+
+    /**
+     * Whether {@code ifMatch} names entity tags to check, rather than being absent or {@code *}.
+     */
+    public static boolean isConditional(String ifMatch) {
+        return ifMatch != null && !ifMatch.isBlank() && !ifMatch.trim().equals("*");
+    }
+
+    /**
+     * The parts each strong entity tag listed in {@code ifMatch} was built from by {@link #of(Object...)}, for
+     * updates that check the tag in their own statement. Weak tags are left out.
+     */
+    public static List<List<String>> parse(String ifMatch) {
+        return Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .filter(tag -> tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\""))
+                .map(tag -> List.of(tag.substring(1, tag.length() - 1).split("-", -1)))
+                .toList();
+    }
+
+    public static ResponseStatusException preconditionFailed() {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, PRECONDITION_FAILED);
+    }
+}
@@ -0,0 +1,250 @@
+package com.arturoglezc.ecommerce2.inventory;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * A concurrent map keyed by primitive {@code long}s, so a lookup does not box the key. Keys are spread over
+ * stripes, each an open-addressing table with linear probing guarded by its own lock; lookups are optimistic
+ * and only take the read lock when a write to the same stripe gets in their way. Values cannot be null.
+ */
+final class ConcurrentLongMap<V> {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentLongMap() {
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    V get(long key) {
+        long hash = hash(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    /**
+     * Returns the value of {@code key}, first adding the one {@code factory} creates if there is none. The factory
+     * runs holding the lock of the key's stripe, so it must be cheap.
+     */
+    V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        long hash = hash(key);
+        Stripe<V> stripe = stripe(hash);
+        V value = stripe.get(key, hash);
+        return value != null ? value : stripe.computeIfAbsent(key, hash, factory);
+    }
+
+    void put(long key, V value) {
+        long hash = hash(key);
+        stripe(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes {@code key} only while it maps to {@code value}.
+     */
+    boolean remove(long key, V value) {
+        long hash = hash(key);
+        return stripe(hash).remove(key, hash, value);
+    }
+
+    void clear() {
+        for (Stripe<V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe<V> stripe(long hash) {
+        return stripes[(int) (hash >>> 58)];
+    }
+
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static final class Stripe<V> {
+
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        V get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                V value = find(key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V computeIfAbsent(long key, long hash, LongFunction<? extends V> factory) {
+            long stamp = lock.writeLock();
+            try {
+                V value = find(key, hash);
+                if (value == null) {
+                    value = factory.apply(key);
+                    insert(key, hash, value);
+                }
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void put(long key, long hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = slotOf(key, hash);
+                if (slot >= 0) {
+                    values[slot] = value;
+                } else {
+                    insert(key, hash, value);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long key, long hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = slotOf(key, hash);
+                if (slot < 0 || values[slot] != value) {
+                    return false;
+                }
+                delete(slot);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                keys = new long[INITIAL_CAPACITY];
+                values = new Object[INITIAL_CAPACITY];
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Probes for a key. Also called without the lock, by optimistic reads that validate the result
+         * afterwards, so it must not fail or loop forever on a table that is being changed.
+         */
+        @SuppressWarnings("unchecked")
+        private V find(long key, long hash) {
+            long[] keys = this.keys;
+            Object[] values = this.values;
+            if (keys.length != values.length) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            for (int i = 0, slot = (int) hash & mask; i < keys.length; i++, slot = (slot + 1) & mask) {
+                Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return (V) value;
+                }
+            }
+            return null;
+        }
+
+        private int slotOf(long key, long hash) {
+            int mask = keys.length - 1;
+            for (int slot = (int) hash & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(long key, long hash, Object value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[oldKeys.length * 2];
+            Object[] newValues = new Object[oldValues.length * 2];
+            int mask = newKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = (int) hash(oldKeys[i]) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        /**
+         * Empties a slot and shifts back the entries after it that probed past it, so no tombstones are needed.
+         */
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int home = (int) hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.arturoglezc.ecommerce2.inventory;
+
+import com.arturoglezc.ecommerce2.product.ProductCache;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * In-memory view of the available stock per product. Reservations are admitted against the product counter
+ * without locking the product row, and every admitted change is journaled in {@code stock_ledger_delta} in the
+ * transaction that makes it; the journal is applied to {@code product.stock} in batches.
+ * <p>
+ * The available stock of a product is its table stock plus its journaled deltas, so the ledger is rebuilt
+ * exactly from the tables on startup, whatever had been flushed before the process stopped.
+ * <p>
+ * The stock of a sharded product lives in its shards, which the journal does not reach, so the ledger does not
+ * hold it: callers take and return it through the tables, see {@link #tracks(Long)}.
+ * <p>
+ * Counters are kept by product id in a {@link ConcurrentLongMap}, so the lookup on every reservation does not box
+ * the id, and are only created for products that exist.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+public class StockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final String TOTAL_STOCK = "p.stock"
+            + " + COALESCE((SELECT SUM(d.delta) FROM stock_ledger_delta d WHERE d.product_id = p.id), 0)";
+    private static final String SELECT_ALL_STOCK = "SELECT p.id, p.stock_shards, " + TOTAL_STOCK + " FROM product p";
+    private static final String SELECT_STOCK = "SELECT p.stock_shards, " + TOTAL_STOCK + " FROM product p WHERE p.id = ?";
+    private static final String INSERT_DELTA = "INSERT INTO stock_ledger_delta (product_id, delta) VALUES (?, ?)";
+    private static final String SELECT_DELTAS = "SELECT id, product_id, delta FROM stock_ledger_delta ORDER BY id "
+            + "FETCH FIRST 10000 ROWS ONLY";
+    private static final String SELECT_PRODUCT_DELTAS = "SELECT id, product_id, delta FROM stock_ledger_delta "
+            + "WHERE product_id = ? ORDER BY id";
+    private static final String DELETE_DELTA = "DELETE FROM stock_ledger_delta WHERE id = ?";
+    private static final String DELETE_PRODUCT_DELTAS = "DELETE FROM stock_ledger_delta WHERE product_id = ?";
+    private static final String APPLY_DELTA = "UPDATE product SET stock = stock + ?, version = version + 1 WHERE id = ?";
+    private static final String COUNT_PRODUCT = "SELECT COUNT(*) FROM product WHERE id = ?";
+
+    private final ConcurrentLongMap<Counter> counters = new ConcurrentLongMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Value("${inventory.ledger.evict-timeout-ms:5000}")
+    private long evictTimeoutMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        counters.clear();
+        jdbcTemplate.query(SELECT_ALL_STOCK, rs -> {
+            Counter counter = new Counter();
+            counter.sharded = rs.getInt(2) > 0;
+            counter.available = rs.getLong(3);
+            counter.loaded = true;
+            counters.put(rs.getLong(1), counter);
+        });
+        log.info("Stock ledger rebuilt with {} products", counters.size());
+    }
+
+    /**
+     * Number of products with a counter.
+     */
+    int size() {
+        return counters.size();
+    }
+
+    /**
+     * Whether the ledger holds the stock of a product: false when the product is unknown or sharded.
+     */
+    public boolean tracks(Long productId) {
+        Counter counter = counters.computeIfAbsent(productId, id -> new Counter());
+        synchronized (counter) {
+            return load(productId, counter) && !counter.sharded;
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units if they are available. Returns false when the ledger does not hold the
+     * product or it has not enough stock. Inside a transaction the units are given back if it rolls back.
+     */
+    public boolean tryReserve(Long productId, int quantity) {
+        Counter counter = counters.computeIfAbsent(productId, id -> new Counter());
+        synchronized (counter) {
+            if (!load(productId, counter) || counter.sharded || counter.available < quantity) {
+                return false;
+            }
+            counter.available -= quantity;
+            counter.inFlight++;
+        }
+        journal(productId, counter, -quantity);
+        return true;
+    }
+
+    /**
+     * Gives {@code quantity} units back, once the current transaction commits. Returns false when the ledger
+     * does not hold the product.
+     */
+    public boolean release(Long productId, int quantity) {
+        Counter counter = counters.computeIfAbsent(productId, id -> new Counter());
+        synchronized (counter) {
+            if (!load(productId, counter) || counter.sharded) {
+                return false;
+            }
+            counter.inFlight++;
+        }
+        journal(productId, counter, quantity);
+        return true;
+    }
+
+    public Long getAvailable(Long productId) {
+        Counter counter = counters.computeIfAbsent(productId, id -> new Counter());
+        synchronized (counter) {
+            return load(productId, counter) && !counter.sharded ? counter.available : null;
+        }
+    }
+
+    /**
+     * Applies the journaled deltas of a product, in the current transaction if there is one, and has its counter
+     * reloaded from the table once that transaction completes. Used before a product is sharded or unsharded,
+     * in the transaction that does it. It waits for the reservations and releases in flight on the product and holds
+     * new ones back until the transaction completes, so none of them is counted against a counter about to be
+     * reloaded.
+     */
+    public void evict(Long productId) {
+        evict(productId, () -> applyJournal(SELECT_PRODUCT_DELTAS, productId));
+    }
+
+    /**
+     * Like {@link #evict(Long)}, but drops the journaled deltas of the product instead of applying them, for a
+     * product whose stock is about to be overwritten or that is about to be deleted. The product row is left as
+     * it is, so a version or entity tag read from it still holds.
+     */
+    public void reset(Long productId) {
+        evict(productId, () -> jdbcTemplate.update(DELETE_PRODUCT_DELTAS, productId));
+    }
+
+    /**
+     * Applies the journal to {@code product.stock} in one transaction: a failed flush leaves every delta in the
+     * journal for the next one.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:1000}")
+    public void flush() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> productIds = applyJournal(SELECT_DELTAS);
+            if (!productIds.isEmpty()) {
+                productIds.forEach(productCache::evict);
+                productPageCache.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Unknown products get no counter: nothing was journaled for them. The counter of a product is reloaded once the
+     * eviction ends, which drops it if the product was deleted meanwhile.
+     */
+    private void evict(Long productId, Runnable journalAction) {
+        Counter existing = counters.get(productId);
+        if (existing == null && jdbcTemplate.queryForObject(COUNT_PRODUCT, Long.class, productId) == 0) {
+            return;
+        }
+        Counter counter = existing != null ? existing : counters.computeIfAbsent(productId, id -> new Counter());
+        synchronized (counter) {
+            if (counter.evictedBy != Thread.currentThread()) {
+                await(productId, counter, () -> counter.evictedBy == null && counter.inFlight == 0);
+                counter.evictedBy = Thread.currentThread();
+            }
+            counter.loaded = false;
+        }
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        try {
+            transactionTemplate.executeWithoutResult(status -> journalAction.run());
+        } catch (RuntimeException e) {
+            endEviction(counter);
+            throw e;
+        }
+        if (!inTransaction) {
+            endEviction(productId, counter);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                endEviction(productId, counter);
+            }
+        });
+    }
+
+    /**
+     * Loads the counter of a product from the tables unless it is loaded, after any eviction in progress.
+     * Returns false when the product is unknown. Called holding the counter's monitor.
+     */
+    private boolean load(Long productId, Counter counter) {
+        await(productId, counter, () -> counter.evictedBy == null || counter.evictedBy == Thread.currentThread());
+        if (counter.loaded) {
+            return true;
+        }
+        List<long[]> stock = jdbcTemplate.query(SELECT_STOCK,
+                (rs, rowNum) -> new long[]{rs.getInt(1), rs.getLong(2)}, productId);
+        if (stock.isEmpty()) {
+            counters.remove(productId, counter);
+            return false;
+        }
+        counter.sharded = stock.getFirst()[0] > 0;
+        counter.available = stock.getFirst()[1];
+        counter.loaded = true;
+        return true;
+    }
+
+    /**
+     * Journals a change in the current transaction. A reservation is given back to the counter if the transaction
+     * rolls back, a release credited once it commits.
+     */
+    private void journal(Long productId, Counter counter, int delta) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(counter, delta, status == STATUS_COMMITTED);
+                }
+            });
+        }
+        try {
+            jdbcTemplate.update(INSERT_DELTA, productId, delta);
+        } catch (RuntimeException e) {
+            if (!inTransaction) {
+                complete(counter, delta, false);
+            }
+            throw e;
+        }
+        if (!inTransaction) {
+            complete(counter, delta, true);
+        }
+    }
+
+    private void complete(Counter counter, int delta, boolean committed) {
+        synchronized (counter) {
+            if (delta < 0 && !committed) {
+                counter.available -= delta;
+            } else if (delta > 0 && committed) {
+                counter.available += delta;
+            }
+            counter.inFlight--;
+            counter.notifyAll();
+        }
+    }
+
+    /**
+     * Deletes journaled deltas and adds them to {@code product.stock}, in the current transaction, in product id
+     * order as checkouts lock products. Only the rows this transaction deleted are applied, so a flush and an
+     * eviction running together never apply a delta twice. Returns the products whose stock changed.
+     */
+    private Set<Long> applyJournal(String sql, Object... args) {
+        List<long[]> rows = jdbcTemplate.query(sql,
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, args);
+        if (rows.isEmpty()) {
+            return Set.of();
+        }
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_DELTA, rows.stream().map(row -> new Object[]{row[0]}).toList());
+        Map<Long, Long> deltas = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (deleted[i] == 1) {
+                deltas.merge(rows.get(i)[1], rows.get(i)[2], Long::sum);
+            }
+        }
+        List<Object[]> batch = new ArrayList<>();
+        deltas.forEach((productId, delta) -> {
+            if (delta != 0) {
+                batch.add(new Object[]{delta, productId});
+            }
+        });
+        jdbcTemplate.batchUpdate(APPLY_DELTA, batch);
+        return deltas.keySet();
+    }
+
+    /**
+     * Waits on the counter's monitor, held by the caller, until the condition holds, for at most
+     * {@code inventory.ledger.evict-timeout-ms}.
+     */
+    private void await(Long productId, Counter counter, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(evictTimeoutMs);
+        while (!condition.getAsBoolean()) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new CannotAcquireLockException("Timed out waiting for the stock ledger of product " + productId);
+            }
+            try {
+                counter.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotAcquireLockException("Interrupted waiting for the stock ledger of product " + productId);
+            }
+        }
+    }
+
+    private void endEviction(Counter counter) {
+        synchronized (counter) {
+            counter.evictedBy = null;
+            counter.notifyAll();
+        }
+    }
+
+    private void endEviction(Long productId, Counter counter) {
+        synchronized (counter) {
+            counter.evictedBy = null;
+            counter.notifyAll();
+            try {
+                load(productId, counter);
+            } catch (RuntimeException e) {
+                log.warn("Could not reload the stock ledger of product {}, it is loaded on its next use", productId, e);
+            }
+        }
+    }
+
+    /**
+     * Available units of a product, and the reservations and releases taken against it whose transaction has
+     * not completed. Guarded by its own monitor.
+     */
+    private static final class Counter {
+        private long available;
+        private boolean sharded;
+        private boolean loaded;
+        private int inFlight;
+        private Thread evictedBy;
+    }
+}
@@ -0,0 +1,50 @@
+package com.arturoglezc.ecommerce2.metrics;
+
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Counts the failures of requests by cause as they leave the controllers, so each failed request is counted once
+ * however deep in the services it was raised: stock rejections, lookups of missing entities, and write conflicts
+ * (lost optimistic locks, lock timeouts and failed {@code If-Match} preconditions) that a client would retry.
+ */
+@Aspect
+@Component
+public class FailureMetrics {
+
+    public static final String STOCK_REJECTIONS = "ecommerce.stock.rejections";
+    public static final String NOT_FOUND = "ecommerce.lookups.not_found";
+    public static final String CONFLICTS = "ecommerce.transaction.conflicts";
+
+    private static final String CONTROLLER_TAG = "controller";
+    private static final String TYPE_TAG = "type";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterThrowing(pointcut = "within(@org.springframework.web.bind.annotation.RestController com.arturoglezc.ecommerce2..*)",
+            throwing = "exception")
+    public void count(JoinPoint joinPoint, Exception exception) {
+        String controller = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        if (exception instanceof ResponseStatusException responseStatusException) {
+            if (OrderItemService.NOT_ENOUGH_STOCK.equals(responseStatusException.getReason())) {
+                meterRegistry.counter(STOCK_REJECTIONS, CONTROLLER_TAG, controller).increment();
+            } else if (responseStatusException.getStatusCode() == HttpStatus.NOT_FOUND) {
+                meterRegistry.counter(NOT_FOUND, CONTROLLER_TAG, controller).increment();
+            } else if (responseStatusException.getStatusCode() == HttpStatus.PRECONDITION_FAILED) {
+                meterRegistry.counter(CONFLICTS, CONTROLLER_TAG, controller, TYPE_TAG, "precondition").increment();
+            }
+        } else if (exception instanceof TransientDataAccessException) {
+            meterRegistry.counter(CONFLICTS, CONTROLLER_TAG, controller,
+                    TYPE_TAG, exception.getClass().getSimpleName()).increment();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.arturoglezc.ecommerce2.order;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record CheckoutRequest(
+        @NotNull @NotEmpty @Size(min = 1, max = 100) String customerName,
+        @NotNull LocalDateTime orderDate,
+        @NotNull OrderStatus status,
+        @NotEmpty @Size(max = CheckoutRequest.MAX_ITEMS) List<@Valid @NotNull Item> items) {
+
+    public static final int MAX_ITEMS = 500;
+
+    public record Item(
+            @NotNull Long productId,
+            @NotNull @Positive Integer quantity,
+            @NotNull @PositiveOrZero Double unitPrice) {
+    }
+}
@@ -1,14 +1,22 @@
 package com.arturoglezc.ecommerce2.order;
 
 import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.EnumSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_total_amount", columnList = "total_amount, id"),
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        @Index(name = "idx_orders_order_date", columnList = "order_date, id"),
+        @Index(name = "idx_orders_customer_name_order_date", columnList = "customer_name, order_date")
+})
 public class Order {
 
     @Id
@@ -30,6 +38,21 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.REMOVE, orphanRemoval = true)
     private Set<OrderItem> orderItems;
 
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int itemCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private double totalAmount;
+
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @AssertTrue
     public boolean isValidStatus() {
         Set<OrderStatus> validStatuses = EnumSet.allOf(OrderStatus.class);
@@ -68,6 +91,30 @@ public class Order {
         this.status = status;
     }
 
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Order() {
     }
 
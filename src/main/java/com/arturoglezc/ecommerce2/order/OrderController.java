@@ -1,12 +1,27 @@
 package com.arturoglezc.ecommerce2.order;
 
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
+import com.arturoglezc.ecommerce2.patch.MergePatch;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -15,16 +30,81 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderStatusTransitionService orderStatusTransitionService;
+
     @GetMapping
-    public Page<Order> getAllOrders(@RequestParam(defaultValue = "0") int page,
-                                    @RequestParam(defaultValue = "10") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return orderService.getAllOrders(pageable);
+    public ResponseEntity<Page<Order>> getAllOrders(@RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam(defaultValue = "10") int size,
+                                                    @RequestParam(required = false) String sortBy,
+                                                    @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                                    @RequestParam(required = false) Double minTotal) {
+        Sort sort = sortBy == null ? Sort.unsorted() : Sort.by(direction, sortBy);
+        if (sortBy != null && !OrderService.SORT_BY_ID.equals(sortBy)) {
+            sort = sort.and(Sort.by(direction, OrderService.SORT_BY_ID));
+        }
+        Pageable pageable = PageRequest.of(page, size, sort);
+        return orderService.getAllOrders(pageable, minTotal).toResponse();
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Page<Order>> searchOrders(
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) String customerNamePrefix,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = OrderService.SORT_BY_ORDER_DATE) String sortBy,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+        Sort sort = Sort.by(direction, sortBy);
+        if (!OrderService.SORT_BY_ID.equals(sortBy)) {
+            sort = sort.and(Sort.by(direction, OrderService.SORT_BY_ID));
+        }
+        OrderSearch search = new OrderSearch(status, customerName, customerNamePrefix, from, to);
+        return orderService.searchOrders(search, PageRequest.of(page, size, sort)).toResponse();
+    }
+
+    @GetMapping(params = "after")
+    public CursorSlice<Order> getOrdersAfter(@RequestParam(defaultValue = "") String after,
+                                             @RequestParam(defaultValue = "10") int size,
+                                             @RequestParam(defaultValue = "id") String sort) {
+        return orderService.getOrdersAfter(after, size, sort);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") Long afterId) {
+        StreamingResponseBody body = outputStream -> orderService.exportOrders(status, from, to, afterId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public Order getOrderById(@PathVariable Long id) {
-        return orderService.getOrderById(id);
+    public ResponseEntity<Order> getOrderById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(orderService.getOrderVersion(id)))) {
+            return null;
+        }
+        Order order = orderService.getOrderById(id);
+        return ResponseEntity.ok().eTag(OrderService.eTagOf(order)).body(order);
+    }
+
+    @GetMapping("/{id}/full")
+    public OrderDetails getOrderDetails(@PathVariable Long id) {
+        return orderService.getOrderDetails(id);
+    }
+
+    @GetMapping("/full")
+    public List<OrderDetails> getOrderDetails(@RequestParam List<Long> ids) {
+        return orderService.getOrderDetails(ids);
     }
 
     @PostMapping
@@ -33,9 +113,29 @@ public class OrderController {
         return orderService.createOrder(order);
     }
 
+    @PostMapping("/checkout")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Order checkout(@Valid @RequestBody CheckoutRequest checkoutRequest) {
+        return orderItemService.checkout(checkoutRequest);
+    }
+
+    @PostMapping("/status-transitions")
+    public OrderStatusTransitionResponse transitionStatus(@Valid @RequestBody OrderStatusTransitionRequest request) {
+        return orderStatusTransitionService.transition(request);
+    }
+
     @PutMapping("/{id}")
-    public Order updateOrder(@PathVariable Long id, @Valid @RequestBody Order order) {
-        return orderService.updateOrder(id, order);
+    public ResponseEntity<Order> updateOrder(@PathVariable Long id, @Valid @RequestBody Order order,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Order updatedOrder = orderService.updateOrder(id, order, ifMatch);
+        return ResponseEntity.ok().eTag(OrderService.eTagOf(updatedOrder)).body(updatedOrder);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchOrder(@PathVariable Long id, @RequestBody JsonNode patch,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        orderService.patchOrder(id, patch, ifMatch);
     }
 
     @DeleteMapping("/{id}")
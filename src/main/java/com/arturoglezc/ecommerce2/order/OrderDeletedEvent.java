@@ -0,0 +1,7 @@
+package com.arturoglezc.ecommerce2.order;
+
+/**
+ * Outbox payload of a deleted order, with the number of items deleted along with it.
+ */
+public record OrderDeletedEvent(int itemCount) {
+}
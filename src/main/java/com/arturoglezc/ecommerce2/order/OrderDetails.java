@@ -0,0 +1,54 @@
+package com.arturoglezc.ecommerce2.order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An order with its lines, the product name of each line and the computed line and order totals.
+ */
+public record OrderDetails(Long id, String customerName, LocalDateTime orderDate, OrderStatus status,
+                           List<Line> items, double total) {
+
+    public static final int MAX_IDS = 500;
+
+    public record Line(Long id, Long productId, String productName, Integer quantity, Double unitPrice,
+                       Double lineTotal) {
+    }
+
+    /**
+     * One row of the order/item/product join; orders without items yield a single row with null item columns.
+     */
+    public record Row(Long orderId, String customerName, LocalDateTime orderDate, OrderStatus status,
+                      Long itemId, Long productId, String productName, Integer quantity, Double unitPrice,
+                      Double lineTotal) {
+    }
+
+    /**
+     * Folds joined rows, ordered by order id, into one {@link OrderDetails} per order.
+     */
+    public static List<OrderDetails> fromRows(List<Row> rows) {
+        Map<Long, List<Row>> rowsByOrderId = new LinkedHashMap<>();
+        for (Row row : rows) {
+            rowsByOrderId.computeIfAbsent(row.orderId(), orderId -> new ArrayList<>()).add(row);
+        }
+        List<OrderDetails> orders = new ArrayList<>(rowsByOrderId.size());
+        for (List<Row> orderRows : rowsByOrderId.values()) {
+            Row first = orderRows.getFirst();
+            List<Line> lines = new ArrayList<>(orderRows.size());
+            double total = 0;
+            for (Row row : orderRows) {
+                if (row.itemId() != null) {
+                    lines.add(new Line(row.itemId(), row.productId(), row.productName(), row.quantity(),
+                            row.unitPrice(), row.lineTotal()));
+                    total += row.lineTotal();
+                }
+            }
+            orders.add(new OrderDetails(first.orderId(), first.customerName(), first.orderDate(), first.status(),
+                    lines, total));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,26 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox payload of an order event. {@code lines} is only set for an order created by a checkout.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderEvent(String customerName, LocalDateTime orderDate, OrderStatus status, int itemCount,
+                         double totalAmount, List<Line> lines) {
+
+    public static OrderEvent of(Order order) {
+        return of(order, null);
+    }
+
+    public static OrderEvent of(Order order, List<Line> lines) {
+        return new OrderEvent(order.getCustomerName(), order.getOrderDate(), order.getStatus(), order.getItemCount(),
+                order.getTotalAmount(), lines);
+    }
+
+    public record Line(Long productId, int quantity, double unitPrice) {
+    }
+}
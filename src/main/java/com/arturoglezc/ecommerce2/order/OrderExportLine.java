@@ -0,0 +1,17 @@
+package com.arturoglezc.ecommerce2.order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One NDJSON line of the order export: an order together with its items.
+ */
+public record OrderExportLine(Long id, String customerName, LocalDateTime orderDate, OrderStatus status, List<Item> items) {
+
+    public record Item(Long orderId, Long id, Long productId, Integer quantity, Double unitPrice) {
+    }
+
+    public static OrderExportLine of(Order order, List<Item> items) {
+        return new OrderExportLine(order.getId(), order.getCustomerName(), order.getOrderDate(), order.getStatus(), items);
+    }
+}
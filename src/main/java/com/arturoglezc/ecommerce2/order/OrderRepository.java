@@ -1,11 +1,105 @@
 package com.arturoglezc.ecommerce2.order;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+    int EXPORT_FETCH_SIZE = 500;
+
     Page<Order> findAll(Pageable pageable);
+
+    List<Order> findAllBy(Pageable pageable);
+
+    Page<Order> findByTotalAmountGreaterThanEqual(double minTotal, Pageable pageable);
+
+    /**
+     * Applies a change in item count and total amount to the denormalized totals of an order.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.itemCount = o.itemCount + :itemCount, o.totalAmount = o.totalAmount + :amount, " +
+            "o.version = o.version + 1 WHERE o.id = :id")
+    int addToTotals(@Param("id") Long id, @Param("itemCount") int itemCount, @Param("amount") double amount);
+
+    /**
+     * Recomputes the denormalized totals of the orders with ids in {@code (fromId, toId]} from their items.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET " +
+            "o.itemCount = (SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order.id = o.id), " +
+            "o.totalAmount = (SELECT COALESCE(SUM(oi.quantity * oi.unitPrice), 0) FROM OrderItem oi WHERE oi.order.id = o.id), " +
+            "o.version = o.version + 1 " +
+            "WHERE o.id > :fromId AND o.id <= :toId")
+    int recomputeTotals(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.arturoglezc.ecommerce2.order.OrderStatusTransitionService$LockedOrder(o.id, o.status) " +
+            "FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<OrderStatusTransitionService.LockedOrder> findStatusesByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status, o.version = o.version + 1 WHERE o.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    /**
+     * Deletes an order without loading it first. Returns the number of affected rows: 0 when it is missing.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Order o WHERE o.id = :id")
+    int deleteByIdWithoutLoading(@Param("id") Long id);
+
+    @Query("SELECT o.version FROM Order o WHERE o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM Order o")
+    long findMaxId();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + OrderRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.id > :afterId " +
+            "AND (:status IS NULL OR o.status = :status) " +
+            "AND (:from IS NULL OR o.orderDate >= :from) " +
+            "AND (:to IS NULL OR o.orderDate < :to) " +
+            "ORDER BY o.id")
+    Stream<Order> streamForExport(@Param("afterId") Long afterId,
+                                  @Param("status") OrderStatus status,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    @Query("SELECT o FROM Order o WHERE o.id > :id ORDER BY o.id")
+    List<Order> findByIdAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT o FROM Order o ORDER BY o.orderDate, o.id")
+    List<Order> findFirstByOrderDate(Limit limit);
+
+    @Query("SELECT o FROM Order o WHERE o.orderDate > :orderDate OR (o.orderDate = :orderDate AND o.id > :id) " +
+            "ORDER BY o.orderDate, o.id")
+    List<Order> findByOrderDateAfter(@Param("orderDate") LocalDateTime orderDate, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT new com.arturoglezc.ecommerce2.order.OrderDetails$Row(" +
+            "o.id, o.customerName, o.orderDate, o.status, oi.id, p.id, p.name, oi.quantity, oi.unitPrice, " +
+            "oi.quantity * oi.unitPrice) " +
+            "FROM Order o LEFT JOIN o.orderItems oi LEFT JOIN oi.product p " +
+            "WHERE o.id IN :ids ORDER BY o.id, oi.id")
+    List<OrderDetails.Row> findDetailRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,59 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters of the order search; {@code null} or empty filters are left out. {@code from} is inclusive and
+ * {@code to} exclusive.
+ */
+public record OrderSearch(List<OrderStatus> statuses, String customerName, String customerNamePrefix,
+                          LocalDateTime from, LocalDateTime to) {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    /**
+     * Only the given filters become predicates, so the query is a plain conjunction of comparisons on
+     * {@code status}, {@code customer_name} and {@code order_date} that the composite indexes on those columns
+     * can serve. A name prefix is a {@code LIKE 'prefix%'} with its wildcards escaped.
+     */
+    public Specification<Order> toSpecification() {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (statuses != null && !statuses.isEmpty()) {
+                predicates.add(statuses.size() == 1
+                        ? criteriaBuilder.equal(root.get("status"), statuses.getFirst())
+                        : root.get("status").in(statuses));
+            }
+            if (customerName != null) {
+                predicates.add(criteriaBuilder.equal(root.get("customerName"), customerName));
+            }
+            if (customerNamePrefix != null) {
+                predicates.add(criteriaBuilder.like(root.get("customerName"),
+                        escapeLike(customerNamePrefix) + "%", LIKE_ESCAPE));
+            }
+            if (from != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("orderDate"), from));
+            }
+            if (to != null) {
+                predicates.add(criteriaBuilder.lessThan(root.get("orderDate"), to));
+            }
+            return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return (statuses == null || statuses.isEmpty()) && customerName == null && customerNamePrefix == null
+                && from == null && to == null;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
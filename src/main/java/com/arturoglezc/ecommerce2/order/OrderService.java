@@ -1,48 +1,409 @@
 package com.arturoglezc.ecommerce2.order;
 
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.outbox.Outbox;
+import com.arturoglezc.ecommerce2.outbox.OutboxEventType;
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import com.arturoglezc.ecommerce2.pagination.Cursor;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
+import com.arturoglezc.ecommerce2.patch.MergePatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.Validator;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "ecommerce.service", histogram = true)
 public class OrderService {
 
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_ORDER_DATE = "orderDate";
+
+    private static final String INVALID_SORT = "Sort must be one of: id, orderDate";
+    private static final String INVALID_SORT_BY = "Sort by must be one of: id, orderDate, itemCount, totalAmount";
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "orderDate", "itemCount", "totalAmount");
+    private static final String INVALID_DATE_RANGE = "From must be before to";
+    private static final String INVALID_IDS = "Between 1 and " + OrderDetails.MAX_IDS + " order ids must be given";
+    private static final String INVALID_STATUS_TRANSITION = "Invalid status transition";
+    private static final String STATUS = "status";
+    private static final String REPLACE_ORDER = "UPDATE orders SET customer_name = ?, order_date = ?, status = ?, "
+            + "version = version + 1 WHERE id = ?";
+    private static final String SELECT_REPLACED_ORDER = "SELECT item_count, total_amount, version FROM orders WHERE id = ?";
+    private static final Map<String, String> PATCHABLE_COLUMNS = Map.of(
+            "customerName", "customer_name", "orderDate", "order_date", STATUS, "status");
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TotalCounts totalCounts;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private OrderStatusTransitionService orderStatusTransitionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${orders.count-strategy:exact}")
+    private CountStrategy countStrategy;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
     public Page<Order> getAllOrders(Pageable pageable) {
         return orderRepository.findAll(pageable);
     }
 
+    /**
+     * Lists orders, optionally only those whose total amount is at least {@code minTotal}.
+     * Sorting is limited to the order columns, including the denormalized totals. The total of the unfiltered
+     * list is counted with {@code orders.count-strategy}; filtered lists are always counted exactly.
+     */
+    @Transactional(readOnly = true)
+    public CountedPage<Order> getAllOrders(Pageable pageable, Double minTotal) {
+        checkSortable(pageable);
+        if (minTotal != null) {
+            return new CountedPage<>(orderRepository.findByTotalAmountGreaterThanEqual(minTotal, pageable),
+                    CountStrategy.EXACT);
+        }
+        return totalCounts.page(TotalCounts.ORDERS, countStrategy, pageable,
+                orderRepository::findAll, orderRepository::findAllBy);
+    }
+
+    /**
+     * Finds the orders matching all the given filters with a single query, plus a count query when the page is
+     * not the last one. The total is always counted exactly.
+     */
+    @Transactional(readOnly = true)
+    public CountedPage<Order> searchOrders(OrderSearch search, Pageable pageable) {
+        checkSortable(pageable);
+        if (search.from() != null && search.to() != null && !search.from().isBefore(search.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_DATE_RANGE);
+        }
+        return new CountedPage<>(orderRepository.findAll(search.toSpecification(), pageable), CountStrategy.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<Order> getOrdersAfter(String after, int size, String sort) {
+        Limit limit = CursorSlice.limitFor(size);
+        Cursor cursor = Cursor.decode(after, sort);
+        List<Order> orders;
+        if (SORT_BY_ID.equals(sort)) {
+            orders = orderRepository.findByIdAfter(cursor == null ? Long.MIN_VALUE : cursor.id(), limit);
+            return CursorSlice.of(orders, size, order -> Cursor.of(sort, order.getId(), order.getId()));
+        }
+        if (SORT_BY_ORDER_DATE.equals(sort)) {
+            orders = cursor == null
+                    ? orderRepository.findFirstByOrderDate(limit)
+                    : orderRepository.findByOrderDateAfter(cursor.key(LocalDateTime::parse), cursor.id(), limit);
+            return CursorSlice.of(orders, size, order -> Cursor.of(sort, order.getOrderDate(), order.getId()));
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SORT);
+    }
+
+    /**
+     * Streams the matching orders as NDJSON, one order with its items per line, from a database cursor.
+     * Orders are written in chunks of {@link OrderRepository#EXPORT_FETCH_SIZE}: each chunk loads its items
+     * with one query and is detached once written, so memory use does not grow with the number of orders.
+     */
+    @Transactional(readOnly = true)
+    public void exportOrders(OrderStatus status, LocalDateTime from, LocalDateTime to, Long afterId,
+                             OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(OrderExportLine.class);
+        try (Stream<Order> orders = orderRepository.streamForExport(afterId, status, from, to)) {
+            Iterator<Order> iterator = orders.iterator();
+            List<Order> chunk = new ArrayList<>(OrderRepository.EXPORT_FETCH_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == OrderRepository.EXPORT_FETCH_SIZE || !iterator.hasNext()) {
+                    writeExportChunk(chunk, writer, outputStream);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+        outputStream.flush();
+    }
+
+    @Transactional(readOnly = true)
     public Order getOrderById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * Reads only the version of an order, enough to answer a conditional GET without loading the row.
+     */
+    @Transactional(readOnly = true)
+    public long getOrderVersion(Long id) {
+        return orderRepository.findVersionById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    private static void checkSortable(Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SORT_BY);
+            }
+        }
+    }
+
+    static String eTagOf(Order order) {
+        return ETags.of(order.getVersion());
+    }
+
+    @Transactional(readOnly = true)
+    public OrderDetails getOrderDetails(Long id) {
+        List<OrderDetails> orders = OrderDetails.fromRows(orderRepository.findDetailRowsByIdIn(List.of(id)));
+        if (orders.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return orders.getFirst();
+    }
+
+    /**
+     * Loads the given orders with their lines in a single query. Unknown ids are left out of the result.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDetails> getOrderDetails(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty() || distinctIds.size() > OrderDetails.MAX_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_IDS);
+        }
+        return OrderDetails.fromRows(orderRepository.findDetailRowsByIdIn(distinctIds));
+    }
+
+    private void writeExportChunk(List<Order> chunk, ObjectWriter writer, OutputStream outputStream) throws IOException {
+        Map<Long, List<OrderExportLine.Item>> itemsByOrderId = orderItemRepository
+                .findExportItemsByOrderIdIn(chunk.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(OrderExportLine.Item::orderId));
+        for (Order order : chunk) {
+            outputStream.write(writer.writeValueAsBytes(
+                    OrderExportLine.of(order, itemsByOrderId.getOrDefault(order.getId(), List.of()))));
+            outputStream.write('\n');
+        }
+    }
+
+    @Transactional
     public Order createOrder(Order order) {
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        totalCounts.add(TotalCounts.ORDERS, 1);
+        outbox.append(OutboxEventType.ORDER_CREATED, savedOrder.getId(), OrderEvent.of(savedOrder));
+        return savedOrder;
     }
 
     public Order updateOrder(Long id, Order order) {
-        Optional<Order> existingOrder = orderRepository.findById(id);
-        if (existingOrder.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        return updateOrder(id, order, null);
+    }
+
+    /**
+     * Replaces an order with one update guarded by the entity tags of {@code ifMatch}, if set, and by the
+     * statuses the new one can be reached from, so only an update that matches no row pays for the read telling
+     * a missing order, a stale entity tag and a forbidden transition apart. Only the customer, date and status
+     * are replaced; the items and totals stay as they are. A change of status must be allowed by
+     * {@link OrderStatus#canTransitionTo}, and cancelling the order gives its stock back.
+     */
+    @Transactional
+    public Order updateOrder(Long id, Order order, String ifMatch) {
+        List<Long> versions = eTagVersions(ifMatch);
+        boolean cancels = order.getStatus() == OrderStatus.CANCELLED;
+        if (replaceOrder(id, order, versions, statusesReaching(order.getStatus())) == 0) {
+            checkNotChanged(id, order.getStatus(), versions);
+            cancels = false;
+            if (replaceOrder(id, order, versions, List.of(OrderStatus.CANCELLED)) == 0) {
+                throw notApplied(versions);
+            }
         }
-        order.setId(id);
-        return orderRepository.save(order);
+        Order updatedOrder = jdbcTemplate.queryForObject(SELECT_REPLACED_ORDER, (rs, rowNum) -> {
+            Order replaced = new Order(order.getCustomerName(), order.getOrderDate(), order.getStatus());
+            replaced.setId(id);
+            replaced.setItemCount(rs.getInt(1));
+            replaced.setTotalAmount(rs.getDouble(2));
+            replaced.setVersion(rs.getLong(3));
+            return replaced;
+        }, id);
+        outbox.append(OutboxEventType.ORDER_UPDATED, id, OrderEvent.of(updatedOrder));
+        if (cancels) {
+            orderStatusTransitionService.returnStock(List.of(id));
+        }
+        return updatedOrder;
+    }
+
+    /**
+     * Applies a JSON Merge Patch of the customer, date and status as one update of only the patched columns,
+     * guarded in the same statement by the entity tags of {@code ifMatch}, if set, and by the statuses a new
+     * status can be reached from, as {@link #updateOrder(Long, Order, String)} does. Cancelling the order gives
+     * its stock back.
+     */
+    @Transactional
+    public void patchOrder(Long id, JsonNode patch, String ifMatch) {
+        MergePatch changes = MergePatch.of(patch, Order.class, PATCHABLE_COLUMNS, objectMapper, validator);
+        if (changes.isEmpty()) {
+            ETags.checkIfMatch(ifMatch, ETags.of(getOrderVersion(id)));
+            return;
+        }
+        List<Long> versions = eTagVersions(ifMatch);
+        OrderStatus status = (OrderStatus) changes.get(STATUS);
+        if (applyPatch(changes, id, versions) == 0) {
+            checkNotChanged(id, status, versions);
+            changes = changes.without(STATUS);
+            status = null;
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (applyPatch(changes, id, versions) == 0) {
+                throw notApplied(versions);
+            }
+        }
+        outbox.append(OutboxEventType.ORDER_PATCHED, id, changes.values());
+        if (status == OrderStatus.CANCELLED) {
+            orderStatusTransitionService.returnStock(List.of(id));
+        }
+    }
+
+    private int replaceOrder(Long id, Order order, List<Long> versions, List<OrderStatus> fromStatuses) {
+        List<Object> args = new ArrayList<>(List.of(order.getCustomerName(), order.getOrderDate(),
+                order.getStatus().name(), id));
+        fromStatuses.forEach(status -> args.add(status.name()));
+        String sql = REPLACE_ORDER + " AND status IN (" + placeholders(fromStatuses.size()) + ")";
+        if (versions != null) {
+            sql += " AND " + versionCondition(versions, args);
+        }
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    private int applyPatch(MergePatch changes, Long id, List<Long> versions) {
+        MergePatch.Update update = changes.toUpdate("orders", id);
+        if (versions != null) {
+            List<Object> args = new ArrayList<>();
+            update.and(versionCondition(versions, args), args.toArray());
+        }
+        if (changes.get(STATUS) instanceof OrderStatus status) {
+            update.andIn("status", statusesReaching(status).stream().map(OrderStatus::name).toList());
+        }
+        return update.execute(jdbcTemplate);
+    }
+
+    /**
+     * Tells apart why a guarded update of an order matched no row: a missing order answers 404, a stale entity
+     * tag 412 and a forbidden transition 400. Cancelling an order that is already cancelled is only rejected by
+     * the guard, which keeps its stock from being given back twice, so it passes here and the caller updates the
+     * other columns without it.
+     */
+    private void checkNotChanged(Long id, OrderStatus status, List<Long> versions) {
+        Order order = getOrderById(id);
+        if (versions != null && !versions.contains(order.getVersion())) {
+            throw ETags.preconditionFailed();
+        }
+        if (status != OrderStatus.CANCELLED || order.getStatus() != OrderStatus.CANCELLED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_STATUS_TRANSITION);
+        }
+    }
+
+    private static ResponseStatusException notApplied(List<Long> versions) {
+        return versions != null ? ETags.preconditionFailed() : new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * The statuses an order may have to be moved to {@code status}; moving to the same status is allowed,
+     * except cancelling again.
+     */
+    private static List<OrderStatus> statusesReaching(OrderStatus status) {
+        return Arrays.stream(OrderStatus.values())
+                .filter(from -> from.canTransitionTo(status) || (from == status && status != OrderStatus.CANCELLED))
+                .toList();
+    }
+
+    /**
+     * The versions of the entity tags listed in {@code ifMatch}, or null when the update is unconditional.
+     */
+    private static List<Long> eTagVersions(String ifMatch) {
+        if (!ETags.isConditional(ifMatch)) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (List<String> parts : ETags.parse(ifMatch)) {
+            try {
+                if (parts.size() == 1) {
+                    versions.add(Long.parseLong(parts.get(0)));
+                }
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        return versions;
+    }
+
+    private static String versionCondition(List<Long> versions, List<Object> args) {
+        if (versions.isEmpty()) {
+            return "1 = 0";
+        }
+        args.addAll(versions);
+        return "version IN (" + placeholders(versions.size()) + ")";
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 
+    /**
+     * Deletes an order and its items with one statement each, without loading them; the affected-row count
+     * tells a missing order apart.
+     */
+    @Transactional
     public void deleteOrder(Long id) {
-        Optional<Order> existingOrder = orderRepository.findById(id);
-        if (existingOrder.isEmpty()) {
+        int deletedItems = orderItemRepository.deleteByOrderIdWithoutLoading(id);
+        if (orderRepository.deleteByIdWithoutLoading(id) == 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
-        orderRepository.deleteById(id);
+        outbox.append(OutboxEventType.ORDER_DELETED, id, new OrderDeletedEvent(deletedItems));
+        totalCounts.add(TotalCounts.ORDERS, -1);
+        totalCounts.add(TotalCounts.ORDER_ITEMS, -deletedItems);
     }
 }
 
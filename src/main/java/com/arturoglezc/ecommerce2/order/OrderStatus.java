@@ -5,5 +5,16 @@ public enum OrderStatus {
     PAID,
     SHIPPED,
     DELIVERED,
-    CANCELLED
+    CANCELLED;
+
+    /**
+     * Orders move forward one step at a time, from PENDING to PAID to SHIPPED to DELIVERED, and any order
+     * that is not cancelled yet can be cancelled.
+     */
+    public boolean canTransitionTo(OrderStatus target) {
+        if (this == CANCELLED) {
+            return false;
+        }
+        return target == CANCELLED || target.ordinal() == ordinal() + 1;
+    }
 }
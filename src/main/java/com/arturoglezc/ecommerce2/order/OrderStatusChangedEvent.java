@@ -0,0 +1,7 @@
+package com.arturoglezc.ecommerce2.order;
+
+/**
+ * Outbox payload of an order moved to another status by a bulk status transition.
+ */
+public record OrderStatusChangedEvent(OrderStatus from, OrderStatus to) {
+}
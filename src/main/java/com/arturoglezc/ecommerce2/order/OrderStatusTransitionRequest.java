@@ -0,0 +1,16 @@
+package com.arturoglezc.ecommerce2.order;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Moves the orders with the given ids, or those matching {@code filter}, to {@code status}. Exactly one of
+ * {@code ids} and {@code filter} must be given.
+ */
+public record OrderStatusTransitionRequest(
+        @NotNull OrderStatus status,
+        @Size(min = 1, max = OrderStatusTransitionService.MAX_ORDERS) List<@NotNull Long> ids,
+        OrderSearch filter) {
+}
@@ -0,0 +1,37 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk status transition, with one result per distinct order in the order the ids were
+ * given or matched.
+ */
+public record OrderStatusTransitionResponse(OrderStatus status, int applied, int unchanged, int rejected,
+                                            int notFound, List<Result> results) {
+
+    static OrderStatusTransitionResponse of(OrderStatus status, List<Result> results) {
+        int[] counts = new int[Outcome.values().length];
+        for (Result result : results) {
+            counts[result.outcome().ordinal()]++;
+        }
+        return new OrderStatusTransitionResponse(status, counts[Outcome.APPLIED.ordinal()],
+                counts[Outcome.UNCHANGED.ordinal()], counts[Outcome.REJECTED.ordinal()],
+                counts[Outcome.NOT_FOUND.ordinal()], results);
+    }
+
+    /**
+     * {@code previousStatus} is the status the order had before the request, unset when it does not exist.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(Long id, OrderStatus previousStatus, Outcome outcome) {
+    }
+
+    public enum Outcome {
+        APPLIED,
+        UNCHANGED,
+        REJECTED,
+        NOT_FOUND
+    }
+}
@@ -0,0 +1,191 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.arturoglezc.ecommerce2.inventory.StockLedger;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.outbox.Outbox;
+import com.arturoglezc.ecommerce2.outbox.OutboxEventType;
+import com.arturoglezc.ecommerce2.product.ProductCache;
+import com.arturoglezc.ecommerce2.product.ProductChangeStream;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
+import com.arturoglezc.ecommerce2.product.StockChangedEvent;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves orders to another status in bulk without loading them. The orders are handled in chunks of
+ * {@link #CHUNK_SIZE}, each committed on its own: the rows of a chunk are locked in id order, every order is
+ * checked against {@link OrderStatus#canTransitionTo}, and the allowed ones are updated with one statement.
+ * Cancelled orders give their stock back in the same transaction.
+ */
+@Service
+@Timed(value = "ecommerce.service", histogram = true)
+public class OrderStatusTransitionService {
+
+    public static final int MAX_ORDERS = 10_000;
+    static final int CHUNK_SIZE = 500;
+
+    private static final String INVALID_TARGET = "Exactly one of ids or a non-empty filter must be given";
+    private static final String TOO_MANY_ORDERS = "At most " + MAX_ORDERS + " orders can change status at once";
+    private static final String RETURN_STOCK = "UPDATE product SET stock = stock + ?, version = version + 1 WHERE id = ?";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductChangeStream productChangeStream;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public OrderStatusTransitionResponse transition(OrderStatusTransitionRequest request) {
+        List<Long> ids = idsOf(request);
+        List<OrderStatusTransitionResponse.Result> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            results.addAll(transactionTemplate.execute(status -> transitionChunk(chunk, request.status())));
+        }
+        return OrderStatusTransitionResponse.of(request.status(), results);
+    }
+
+    /**
+     * Gives back the stock taken by the items of the given orders: the quantities are summed per product with
+     * one query and returned with one batch of updates in product id order, the order checkouts lock them in.
+     * With the stock ledger, the products it holds get their units back through it instead.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void returnStock(Collection<Long> orderIds) {
+        List<ItemQuantity> quantities = orderItemRepository.sumQuantitiesByOrderIdIn(orderIds);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<ItemQuantity> unreleased = quantities;
+        if (stockLedger != null) {
+            unreleased = new ArrayList<>();
+            for (ItemQuantity item : quantities) {
+                if (!stockLedger.release(item.productId(), Math.toIntExact(item.quantity()))) {
+                    unreleased.add(item);
+                }
+            }
+        }
+        if (!unreleased.isEmpty()) {
+            productPageCache.invalidate();
+            jdbcTemplate.batchUpdate(RETURN_STOCK, unreleased, unreleased.size(), (ps, item) -> {
+                ps.setLong(1, item.quantity());
+                ps.setLong(2, item.productId());
+            });
+            unreleased.forEach(item -> productCache.evict(item.productId()));
+        }
+        quantities.forEach(item -> outbox.append(OutboxEventType.STOCK_CHANGED, item.productId(),
+                new StockChangedEvent(Math.toIntExact(item.quantity()))));
+        quantities.forEach(item -> productChangeStream.changed(item.productId()));
+    }
+
+    private List<Long> idsOf(OrderStatusTransitionRequest request) {
+        boolean hasFilter = request.filter() != null && !request.filter().isEmpty();
+        if ((request.ids() == null) == !hasFilter) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_TARGET);
+        }
+        List<Long> ids = request.ids() != null
+                ? List.copyOf(new LinkedHashSet<>(request.ids()))
+                : findIds(request.filter());
+        if (ids.size() > MAX_ORDERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, TOO_MANY_ORDERS);
+        }
+        return ids;
+    }
+
+    /**
+     * Selects only the ids of the matching orders, one more than allowed so that too broad a filter is caught.
+     */
+    private List<Long> findIds(OrderSearch filter) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Order> root = query.from(Order.class);
+        query.select(root.get("id"))
+                .where(filter.toSpecification().toPredicate(root, query, criteriaBuilder))
+                .orderBy(criteriaBuilder.asc(root.get("id")));
+        return entityManager.createQuery(query).setMaxResults(MAX_ORDERS + 1).getResultList();
+    }
+
+    private List<OrderStatusTransitionResponse.Result> transitionChunk(List<Long> ids, OrderStatus target) {
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        for (LockedOrder order : orderRepository.findStatusesByIdInForUpdate(ids)) {
+            statuses.put(order.id(), order.status());
+        }
+
+        List<OrderStatusTransitionResponse.Result> results = new ArrayList<>(ids.size());
+        List<Long> applied = new ArrayList<>();
+        for (Long id : ids) {
+            OrderStatus status = statuses.get(id);
+            OrderStatusTransitionResponse.Outcome outcome;
+            if (status == null) {
+                outcome = OrderStatusTransitionResponse.Outcome.NOT_FOUND;
+            } else if (status == target) {
+                outcome = OrderStatusTransitionResponse.Outcome.UNCHANGED;
+            } else if (status.canTransitionTo(target)) {
+                outcome = OrderStatusTransitionResponse.Outcome.APPLIED;
+                applied.add(id);
+            } else {
+                outcome = OrderStatusTransitionResponse.Outcome.REJECTED;
+            }
+            results.add(new OrderStatusTransitionResponse.Result(id, status, outcome));
+        }
+
+        if (!applied.isEmpty()) {
+            orderRepository.updateStatus(applied, target);
+            for (Long id : applied) {
+                outbox.append(OutboxEventType.ORDER_STATUS_CHANGED, id, new OrderStatusChangedEvent(statuses.get(id), target));
+            }
+            if (target == OrderStatus.CANCELLED) {
+                returnStock(applied);
+            }
+        }
+        return results;
+    }
+
+    public record LockedOrder(Long id, OrderStatus status) {
+    }
+
+    public record ItemQuantity(Long productId, Long quantity) {
+    }
+}
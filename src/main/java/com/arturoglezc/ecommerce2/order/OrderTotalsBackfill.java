@@ -0,0 +1,49 @@
+package com.arturoglezc.ecommerce2.order;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Recomputes the denormalized item count and total amount of every order from its items.
+ * Orders are processed in id ranges of {@link #BATCH_SIZE}, each committed on its own, so the job
+ * never holds locks on the whole table. Runs once at startup when {@code orders.totals.backfill} is set.
+ */
+@Component
+public class OrderTotalsBackfill implements ApplicationRunner {
+
+    static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.totals.backfill:false}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    /**
+     * Returns the number of orders updated.
+     */
+    public int backfill() {
+        long maxId = orderRepository.findMaxId();
+        int updated = 0;
+        for (long fromId = 0; fromId < maxId; fromId += BATCH_SIZE) {
+            long from = fromId;
+            Integer batch = transactionTemplate.execute(status -> orderRepository.recomputeTotals(from, from + BATCH_SIZE));
+            updated += batch == null ? 0 : batch;
+        }
+        return updated;
+    }
+}
@@ -1,12 +1,17 @@
 package com.arturoglezc.ecommerce2.orderitem;
 
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/order-items")
@@ -16,26 +21,39 @@ public class OrderItemController {
     private OrderItemService orderItemService;
 
     @GetMapping
-    public Page<OrderItem> getAllOrderItems(@RequestParam(defaultValue = "0") int page,
-                                            @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<Page<OrderItemView>> getAllOrderItems(@RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(defaultValue = "10") int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return orderItemService.getAllOrderItems(pageable);
+        return orderItemService.getAllOrderItems(pageable).toResponse();
+    }
+
+    @GetMapping(params = "after")
+    public CursorSlice<OrderItemView> getOrderItemsAfter(@RequestParam(defaultValue = "") String after,
+                                                         @RequestParam(defaultValue = "10") int size) {
+        return orderItemService.getOrderItemsAfter(after, size);
     }
 
     @GetMapping("/{id}")
-    public OrderItem getOrderItemById(@PathVariable Long id) {
-        return orderItemService.getOrderItemById(id);
+    public ResponseEntity<OrderItemView> getOrderItemById(@PathVariable Long id, WebRequest request) {
+        OrderItemView orderItem = orderItemService.getOrderItemById(id);
+        String eTag = ETags.of(orderItem.version());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(orderItem);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public OrderItem createOrderItem(@Valid @RequestBody OrderItem orderItem) {
-        return orderItemService.createOrderItem(orderItem);
+    public OrderItemView createOrderItem(@Valid @RequestBody OrderItem orderItem) {
+        return OrderItemView.from(orderItemService.createOrderItem(orderItem));
     }
 
     @PutMapping("/{id}")
-    public OrderItem updateOrderItem(@PathVariable Long id, @Valid @RequestBody OrderItem orderItem) {
-        return orderItemService.updateOrderItem(id, orderItem);
+    public ResponseEntity<OrderItemView> updateOrderItem(@PathVariable Long id, @Valid @RequestBody OrderItem orderItem,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        OrderItemView updatedOrderItem = OrderItemView.from(orderItemService.updateOrderItem(id, orderItem, ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedOrderItem.version())).body(updatedOrderItem);
     }
 
     @DeleteMapping("/{id}")
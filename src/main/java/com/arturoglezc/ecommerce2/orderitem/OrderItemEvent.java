@@ -0,0 +1,12 @@
+package com.arturoglezc.ecommerce2.orderitem;
+
+/**
+ * Outbox payload of an order item event.
+ */
+public record OrderItemEvent(Long orderId, Long productId, int quantity, double unitPrice) {
+
+    static OrderItemEvent of(OrderItem orderItem) {
+        return new OrderItemEvent(orderItem.getOrder().getId(), orderItem.getProduct().getId(),
+                orderItem.getQuantity(), orderItem.getUnitPrice());
+    }
+}
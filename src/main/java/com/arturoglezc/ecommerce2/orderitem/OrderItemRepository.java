@@ -1,14 +1,51 @@
 package com.arturoglezc.ecommerce2.orderitem;
 
+import com.arturoglezc.ecommerce2.order.OrderExportLine;
+import com.arturoglezc.ecommerce2.order.OrderStatusTransitionService;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     Page<OrderItem> findAll(Pageable pageable);
+
+    String VIEW_SELECT = "SELECT new com.arturoglezc.ecommerce2.orderitem.OrderItemView(" +
+            "oi.id, o.id, o.customerName, p.id, p.name, oi.quantity, oi.unitPrice, oi.version) " +
+            "FROM OrderItem oi JOIN oi.order o JOIN oi.product p ";
+
+    @Query(value = VIEW_SELECT, countQuery = "SELECT count(oi) FROM OrderItem oi")
+    Page<OrderItemView> findAllViews(Pageable pageable);
+
+    @Query(VIEW_SELECT)
+    List<OrderItemView> findViews(Pageable pageable);
+
+    @Query(VIEW_SELECT + "WHERE oi.id = :id")
+    Optional<OrderItemView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW_SELECT + "WHERE oi.id > :id ORDER BY oi.id")
+    List<OrderItemView> findViewsByIdAfter(@Param("id") Long id, Limit limit);
+
     boolean existsByProductId(Long productId);
     List<OrderItem> findByProductId(Long productId);
     List<OrderItem> findByOrderId(Long orderId);
+
+    @Query("SELECT new com.arturoglezc.ecommerce2.order.OrderExportLine$Item(oi.order.id, oi.id, oi.product.id, oi.quantity, oi.unitPrice) " +
+            "FROM OrderItem oi WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderExportLine.Item> findExportItemsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM OrderItem oi WHERE oi.order.id = :orderId")
+    int deleteByOrderIdWithoutLoading(@Param("orderId") Long orderId);
+
+    @Query("SELECT new com.arturoglezc.ecommerce2.order.OrderStatusTransitionService$ItemQuantity(oi.product.id, SUM(oi.quantity)) " +
+            "FROM OrderItem oi WHERE oi.order.id IN :orderIds GROUP BY oi.product.id ORDER BY oi.product.id")
+    List<OrderStatusTransitionService.ItemQuantity> sumQuantitiesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
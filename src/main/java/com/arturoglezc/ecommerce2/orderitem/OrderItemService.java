@@ -1,26 +1,57 @@
 package com.arturoglezc.ecommerce2.orderitem;
 
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.inventory.StockLedger;
+import com.arturoglezc.ecommerce2.outbox.Outbox;
+import com.arturoglezc.ecommerce2.outbox.OutboxEventType;
 import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductChangeStream;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
 import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductStockShardService;
+import com.arturoglezc.ecommerce2.product.StockChangedEvent;
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
 import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderDeletedEvent;
+import com.arturoglezc.ecommerce2.order.OrderEvent;
 import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import com.arturoglezc.ecommerce2.pagination.Cursor;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
 @Service
+@Timed(value = "ecommerce.service", histogram = true)
 @Transactional
 public class OrderItemService {
 
     private static final String ORDER_ITEM_NOT_FOUND = "OrderItem not found";
     private static final String ORDER_NOT_FOUND = "Order not found";
     private static final String PRODUCT_NOT_FOUND = "Product not found";
+    private static final String ORDER_CANCELLED = "Order is cancelled";
+    private static final String CHECKOUT_CANCELLED = "An order cannot be checked out as cancelled";
     private static final String PRODUCT_ASSOCIATED_CANNOT_BE_DELETED = "Product is associated with existing order items and cannot be deleted.";
-    private static final String NOT_ENOUGH_STOCK = "Not enough stock";
+    public static final String NOT_ENOUGH_STOCK = "Not enough stock";
+    private static final String SORT_BY_ID = "id";
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_item (order_id, product_id, quantity, unit_price, version) VALUES (?, ?, ?, ?, 0)";
 
     @Autowired
     private OrderItemRepository orderItemRepository;
@@ -31,66 +62,186 @@ public class OrderItemService {
     @Autowired
     private OrderRepository orderRepository;
 
-    public Page<OrderItem> getAllOrderItems(Pageable pageable) {
-        return orderItemRepository.findAll(pageable);
-    }
+    @Autowired
+    private ProductStockShardService productStockShardService;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductChangeStream productChangeStream;
+
+    @Autowired
+    private TotalCounts totalCounts;
 
-    public OrderItem getOrderItemById(Long id) {
-        return findOrderItemById(id);
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+
+    @Value("${order-items.count-strategy:exact}")
+    private CountStrategy countStrategy;
+
+    @Transactional(readOnly = true)
+    public CountedPage<OrderItemView> getAllOrderItems(Pageable pageable) {
+        return totalCounts.page(TotalCounts.ORDER_ITEMS, countStrategy, pageable,
+                orderItemRepository::findAllViews, orderItemRepository::findViews);
     }
 
-    public OrderItem createOrderItem(OrderItem orderItem) {
-        Product product = findProductById(orderItem.getProduct().getId());
+    @Transactional(readOnly = true)
+    public CursorSlice<OrderItemView> getOrderItemsAfter(String after, int size) {
+        Cursor cursor = Cursor.decode(after, SORT_BY_ID);
+        List<OrderItemView> orderItems = orderItemRepository.findViewsByIdAfter(
+                cursor == null ? Long.MIN_VALUE : cursor.id(), CursorSlice.limitFor(size));
+        return CursorSlice.of(orderItems, size, orderItem -> Cursor.of(SORT_BY_ID, orderItem.id(), orderItem.id()));
+    }
 
-        if (product.getStock() < orderItem.getQuantity()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
-        }
+    @Transactional(readOnly = true)
+    public OrderItemView getOrderItemById(Long id) {
+        return orderItemRepository.findViewById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, ORDER_ITEM_NOT_FOUND));
+    }
 
-        product.setStock(product.getStock() - orderItem.getQuantity());
-        productRepository.save(product);
+    public OrderItem createOrderItem(OrderItem orderItem) {
+        Long productId = orderItem.getProduct().getId();
+        takeStock(productId, orderItem.getQuantity());
 
+        Product product = findProductById(productId);
         Order order = findOrderById(orderItem.getOrder().getId());
+        checkNotCancelled(order);
 
         orderItem.setProduct(product);
         orderItem.setOrder(order);
 
-        return orderItemRepository.save(orderItem);
+        OrderItem savedOrderItem = orderItemRepository.save(orderItem);
+        orderRepository.addToTotals(order.getId(), 1, amountOf(savedOrderItem));
+        totalCounts.add(TotalCounts.ORDER_ITEMS, 1);
+        outbox.append(OutboxEventType.ITEM_ADDED, savedOrderItem.getId(), OrderItemEvent.of(savedOrderItem));
+        stockChanged(productId, -orderItem.getQuantity());
+        return savedOrderItem;
     }
 
     public OrderItem updateOrderItem(Long id, OrderItem orderItem) {
-        OrderItem existingOrderItem = findOrderItemById(id);
+        return updateOrderItem(id, orderItem, null);
+    }
 
-        Product product = findProductById(orderItem.getProduct().getId());
+    /**
+     * Replaces an order item. With {@code ifMatch} set, the update only applies while the item still has
+     * that entity tag.
+     */
+    public OrderItem updateOrderItem(Long id, OrderItem orderItem, String ifMatch) {
+        OrderItem existingOrderItem = findOrderItemById(id);
+        ETags.checkIfMatch(ifMatch, ETags.of(existingOrderItem.getVersion()));
+        checkNotCancelled(existingOrderItem.getOrder());
+        Long previousOrderId = existingOrderItem.getOrder().getId();
+        double previousAmount = amountOf(existingOrderItem);
+        Long version = existingOrderItem.getVersion();
 
+        Long productId = orderItem.getProduct().getId();
         int stockAdjustment = orderItem.getQuantity() - existingOrderItem.getQuantity();
-        if (product.getStock() < stockAdjustment) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
-        }
-        product.setStock(product.getStock() - stockAdjustment);
-        productRepository.save(product);
+        takeStock(productId, stockAdjustment);
 
+        Product product = findProductById(productId);
         Order order = findOrderById(orderItem.getOrder().getId());
+        checkNotCancelled(order);
 
         orderItem.setProduct(product);
         orderItem.setOrder(order);
         orderItem.setId(id);
+        orderItem.setVersion(version);
 
-        return orderItemRepository.save(orderItem);
+        OrderItem savedOrderItem;
+        try {
+            savedOrderItem = orderItemRepository.save(orderItem);
+            orderItemRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw ETags.preconditionFailed();
+        }
+        if (Objects.equals(previousOrderId, order.getId())) {
+            orderRepository.addToTotals(order.getId(), 0, amountOf(savedOrderItem) - previousAmount);
+        } else {
+            orderRepository.addToTotals(previousOrderId, -1, -previousAmount);
+            orderRepository.addToTotals(order.getId(), 1, amountOf(savedOrderItem));
+        }
+        outbox.append(OutboxEventType.ITEM_CHANGED, id, OrderItemEvent.of(savedOrderItem));
+        if (stockAdjustment != 0) {
+            stockChanged(productId, -stockAdjustment);
+        }
+        return savedOrderItem;
     }
 
+    /**
+     * Deletes an order item and gives its stock back, unless its order is cancelled and so already has.
+     */
     public void deleteOrderItem(Long id) {
         OrderItem orderItem = findOrderItemById(id);
+        Long orderId = orderItem.getOrder().getId();
+        double amount = amountOf(orderItem);
 
-        Product product = findProductById(orderItem.getProduct().getId());
-        product.setStock(product.getStock() + orderItem.getQuantity());
-        productRepository.save(product);
+        outbox.append(OutboxEventType.ITEM_REMOVED, id, OrderItemEvent.of(orderItem));
+        if (orderItem.getOrder().getStatus() != OrderStatus.CANCELLED) {
+            returnStock(orderItem.getProduct().getId(), orderItem.getQuantity());
+            stockChanged(orderItem.getProduct().getId(), orderItem.getQuantity());
+        }
 
         orderItemRepository.deleteById(id);
+        orderRepository.addToTotals(orderId, -1, -amount);
+        totalCounts.add(TotalCounts.ORDER_ITEMS, -1);
+    }
+
+    /**
+     * Creates an order with all its items in one transaction. The products are locked in ascending id
+     * order, the stock of every line is validated before anything is taken, and the items are inserted
+     * as a single JDBC batch.
+     */
+    public Order checkout(CheckoutRequest request) {
+        if (request.status() == OrderStatus.CANCELLED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, CHECKOUT_CANCELLED);
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (CheckoutRequest.Item item : request.items()) {
+            quantities.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+
+        if (stockLedger != null) {
+            reserveInLedger(quantities);
+        } else {
+            takeLockedStock(quantities);
+        }
+
+        Order newOrder = new Order(request.customerName(), request.orderDate(), request.status());
+        newOrder.setItemCount(request.items().size());
+        newOrder.setTotalAmount(request.items().stream()
+                .mapToDouble(item -> item.quantity() * item.unitPrice())
+                .sum());
+        Order order = orderRepository.save(newOrder);
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM, request.items(), request.items().size(), (ps, item) -> {
+            ps.setLong(1, order.getId());
+            ps.setLong(2, item.productId());
+            ps.setInt(3, item.quantity());
+            ps.setDouble(4, item.unitPrice());
+        });
+        totalCounts.add(TotalCounts.ORDERS, 1);
+        totalCounts.add(TotalCounts.ORDER_ITEMS, request.items().size());
+
+        outbox.append(OutboxEventType.ORDER_CREATED, order.getId(), OrderEvent.of(order, request.items().stream()
+                .map(item -> new OrderEvent.Line(item.productId(), item.quantity(), item.unitPrice()))
+                .toList()));
+        quantities.forEach((productId, quantity) -> stockChanged(productId, -quantity));
+        return order;
     }
 
     public void deleteOrder(Long id) {
         Order order = findOrderById(id);
+        outbox.append(OutboxEventType.ORDER_DELETED, id, new OrderDeletedEvent(order.getItemCount()));
         orderRepository.deleteById(id);
+        totalCounts.add(TotalCounts.ORDERS, -1);
+        totalCounts.add(TotalCounts.ORDER_ITEMS, -order.getItemCount());
     }
 
     public void deleteProduct(Long id) {
@@ -100,7 +251,117 @@ public class OrderItemService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, PRODUCT_ASSOCIATED_CANNOT_BE_DELETED);
         }
 
+        productPageCache.invalidate();
         productRepository.deleteById(id);
+        totalCounts.add(TotalCounts.PRODUCTS, -1);
+    }
+
+    private void takeStock(Long productId, int quantity) {
+        if (quantity < 0) {
+            returnStock(productId, -quantity);
+            return;
+        }
+        if (quantity > 0 && !reserveStock(productId, quantity)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
+        }
+    }
+
+    private boolean reserveStock(Long productId, int quantity) {
+        if (stockLedger != null) {
+            if (stockLedger.tryReserve(productId, quantity)) {
+                return true;
+            }
+            if (stockLedger.tracks(productId)) {
+                return false;
+            }
+        }
+        productPageCache.invalidate();
+        int shardCount = productStockShardService.knownShardCount(productId);
+        if (shardCount > 0) {
+            return productStockShardService.tryTake(productId, shardCount, quantity);
+        }
+        if (productRepository.decrementStock(productId, quantity) > 0) {
+            return true;
+        }
+        Product product = findProductById(productId);
+        productStockShardService.remember(product);
+        return product.getStockShards() > 0
+                && productStockShardService.tryTake(productId, product.getStockShards(), quantity);
+    }
+
+    private void takeLockedStock(Map<Long, Integer> quantities) {
+        productPageCache.invalidate();
+        List<Product> products = productRepository.findAllByIdForUpdate(quantities.keySet());
+        if (products.size() != quantities.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_NOT_FOUND);
+        }
+        for (Product product : products) {
+            if (product.getStock() < quantities.get(product.getId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
+            }
+        }
+
+        List<Product> shardedProducts = new ArrayList<>();
+        for (Product product : products) {
+            productStockShardService.remember(product);
+            if (product.getStockShards() > 0) {
+                shardedProducts.add(product);
+            } else {
+                product.setStock(product.getStock() - quantities.get(product.getId()));
+            }
+        }
+        productRepository.flush();
+
+        for (Product product : shardedProducts) {
+            if (!productStockShardService.tryTake(product.getId(), product.getStockShards(), quantities.get(product.getId()))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
+            }
+        }
+    }
+
+    /**
+     * Reserves the lines in the stock ledger; the products it does not hold, sharded or unknown, are taken
+     * from the tables.
+     */
+    private void reserveInLedger(Map<Long, Integer> quantities) {
+        Map<Long, Integer> untracked = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (stockLedger.tryReserve(productId, quantity)) {
+                return;
+            }
+            if (stockLedger.tracks(productId)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NOT_ENOUGH_STOCK);
+            }
+            untracked.put(productId, quantity);
+        });
+        if (!untracked.isEmpty()) {
+            takeLockedStock(untracked);
+        }
+    }
+
+    private void returnStock(Long productId, int quantity) {
+        if (stockLedger != null && stockLedger.release(productId, quantity)) {
+            return;
+        }
+        productPageCache.invalidate();
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_NOT_FOUND);
+        }
+    }
+
+    private void stockChanged(Long productId, int delta) {
+        outbox.append(OutboxEventType.STOCK_CHANGED, productId, new StockChangedEvent(delta));
+        productChangeStream.changed(productId);
+    }
+
+    private static void checkNotCancelled(Order order) {
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ORDER_CANCELLED);
+        }
+    }
+
+    private static double amountOf(OrderItem orderItem) {
+        return orderItem.getQuantity() * orderItem.getUnitPrice();
     }
 
     private Product findProductById(Long id) {
@@ -0,0 +1,20 @@
+package com.arturoglezc.ecommerce2.orderitem;
+
+/**
+ * Read model of an order item: the item with the few fields of its order and product that clients display.
+ */
+public record OrderItemView(Long id, Long orderId, String customerName, Long productId, String productName,
+                            Integer quantity, Double unitPrice, Long version) {
+
+    public static OrderItemView from(OrderItem orderItem) {
+        return new OrderItemView(
+                orderItem.getId(),
+                orderItem.getOrder().getId(),
+                orderItem.getOrder().getCustomerName(),
+                orderItem.getProduct().getId(),
+                orderItem.getProduct().getName(),
+                orderItem.getQuantity(),
+                orderItem.getUnitPrice(),
+                orderItem.getVersion());
+    }
+}
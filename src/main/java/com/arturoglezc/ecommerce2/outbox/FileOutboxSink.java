@@ -0,0 +1,45 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each batch to {@code outbox.sink.file} as NDJSON, one event per line, with a single write.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectWriter writer;
+
+    public FileOutboxSink(ObjectMapper objectMapper, @Value("${outbox.sink.file:outbox/events.ndjson}") Path file)
+            throws IOException {
+        this.file = file.toAbsolutePath();
+        this.writer = objectMapper.writerFor(OutboxEvent.class);
+        Files.createDirectories(this.file.getParent());
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 128);
+        for (OutboxEvent event : events) {
+            writer.writeValue(lines, event);
+            lines.write('\n');
+        }
+        try (OutputStream outputStream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            lines.writeTo(outputStream);
+        }
+    }
+}
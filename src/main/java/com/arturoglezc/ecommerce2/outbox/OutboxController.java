@@ -0,0 +1,19 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @GetMapping("/stats")
+    public OutboxRelayStatistics getStatistics() {
+        return outboxRelay.getStatistics();
+    }
+}
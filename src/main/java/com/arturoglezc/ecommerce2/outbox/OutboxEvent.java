@@ -0,0 +1,12 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * An event read back from the outbox. {@code payload} is the JSON written when the event was appended.
+ */
+public record OutboxEvent(long id, OutboxEventType type, long aggregateId, @JsonRawValue String payload,
+                          Instant createdAt) {
+}
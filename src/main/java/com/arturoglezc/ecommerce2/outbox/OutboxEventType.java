@@ -0,0 +1,17 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+/**
+ * What an outbox event reports. The aggregate id of an event is the id of the order, order item or product
+ * named by its type.
+ */
+public enum OutboxEventType {
+    ORDER_CREATED,
+    ORDER_UPDATED,
+    ORDER_PATCHED,
+    ORDER_DELETED,
+    ORDER_STATUS_CHANGED,
+    ITEM_ADDED,
+    ITEM_CHANGED,
+    ITEM_REMOVED,
+    STOCK_CHANGED
+}
@@ -0,0 +1,187 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox in batches of {@code outbox.relay.batch-size}, oldest event first, every
+ * {@code outbox.relay.interval-ms}. Each batch is claimed, published to the {@link OutboxSink} and deleted in one
+ * transaction: on PostgreSQL with a single {@code DELETE ... RETURNING} over the lowest ids, elsewhere by locking
+ * them with {@code SELECT ... FOR UPDATE} and deleting them by id. A relay running on another instance waits for
+ * the claimed rows instead of skipping them, so batches are published in id order.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String COLUMNS = "id, event_type, aggregate_id, payload, created_at";
+    private static final String POSTGRESQL_CLAIM = "DELETE FROM outbox_event WHERE id IN " +
+            "(SELECT id FROM outbox_event ORDER BY id LIMIT ? FOR UPDATE) RETURNING " + COLUMNS;
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT " + COLUMNS + " FROM outbox_event ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE";
+    private static final String DELETE_BY_ID = "DELETE FROM outbox_event WHERE id = ?";
+    private static final String OLDEST_CREATED_AT =
+            "SELECT created_at FROM outbox_event ORDER BY id FETCH FIRST 1 ROWS ONLY";
+    private static final RowMapper<OutboxEvent> EVENT_MAPPER = (resultSet, rowNumber) -> new OutboxEvent(
+            resultSet.getLong("id"),
+            OutboxEventType.valueOf(resultSet.getString("event_type")),
+            resultSet.getLong("aggregate_id"),
+            resultSet.getString("payload"),
+            resultSet.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final boolean enabled;
+    private final Counter publishedEvents;
+    private final Counter failedBatches;
+    private final Timer lag;
+    private final Timer batchTime;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile double lastEventsPerSecond;
+    private volatile Boolean postgresql;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, OutboxSink sink,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:1000}") int batchSize,
+                       @Value("${outbox.relay.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.enabled = enabled;
+        this.publishedEvents = meterRegistry.counter("outbox.relay.events");
+        this.failedBatches = meterRegistry.counter("outbox.relay.failures");
+        this.lag = Timer.builder("outbox.relay.lag").publishPercentileHistogram().register(meterRegistry);
+        this.batchTime = Timer.builder("outbox.relay.batch").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("outbox.pending.age", this, relay -> relay.oldestPendingAgeMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        if (enabled) {
+            publishPending();
+        }
+    }
+
+    /**
+     * Drains the outbox, counting and logging a failure instead of throwing it. The failed batch is published
+     * again by the next run.
+     */
+    public void publishPending() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            failedBatches.increment();
+            log.warn("Outbox relay failed, the batch stays in the outbox", e);
+        }
+    }
+
+    /**
+     * Publishes batches until the outbox is empty. Returns the number of events published.
+     */
+    public long drain() {
+        long start = System.nanoTime();
+        long total = 0;
+        int batch;
+        do {
+            Integer count = transactionTemplate.execute(status -> publishBatch());
+            batch = count == null ? 0 : count;
+            total += batch;
+        } while (batch == batchSize);
+        if (total > 0) {
+            lastEventsPerSecond = total / (Math.max(System.nanoTime() - start, 1) / 1e9);
+        }
+        return total;
+    }
+
+    public OutboxRelayStatistics getStatistics() {
+        return new OutboxRelayStatistics(published.get(), batches.get(), failures.get(), lastBatchSize.get(),
+                lastLagMillis.get(), maxLagMillis.get(), lastEventsPerSecond, oldestPendingAgeMillis());
+    }
+
+    private int publishBatch() {
+        long start = System.nanoTime();
+        List<OutboxEvent> events = claim();
+        if (events.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.publish(events);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Instant now = Instant.now();
+        for (OutboxEvent event : events) {
+            lag.record(Duration.between(event.createdAt(), now));
+        }
+        long newestLag = Duration.between(events.getLast().createdAt(), now).toMillis();
+        long oldestLag = Duration.between(events.getFirst().createdAt(), now).toMillis();
+        lastLagMillis.set(newestLag);
+        maxLagMillis.accumulateAndGet(oldestLag, Math::max);
+        lastBatchSize.set(events.size());
+        published.addAndGet(events.size());
+        batches.incrementAndGet();
+        publishedEvents.increment(events.size());
+        batchTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return events.size();
+    }
+
+    private List<OutboxEvent> claim() {
+        if (isPostgresql()) {
+            List<OutboxEvent> events = new ArrayList<>(jdbcTemplate.query(POSTGRESQL_CLAIM, EVENT_MAPPER, batchSize));
+            events.sort(Comparator.comparingLong(OutboxEvent::id));
+            return events;
+        }
+        List<OutboxEvent> events = jdbcTemplate.query(SELECT_FOR_UPDATE, EVENT_MAPPER, batchSize);
+        jdbcTemplate.batchUpdate(DELETE_BY_ID, events, events.size(),
+                (ps, event) -> ps.setLong(1, event.id()));
+        return events;
+    }
+
+    private long oldestPendingAgeMillis() {
+        List<Timestamp> oldest = jdbcTemplate.queryForList(OLDEST_CREATED_AT, Timestamp.class);
+        return oldest.isEmpty() ? 0 : Math.max(Duration.between(oldest.getFirst().toInstant(), Instant.now()).toMillis(), 0);
+    }
+
+    private boolean isPostgresql() {
+        if (postgresql == null) {
+            postgresql = POSTGRESQL.equals(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgresql;
+    }
+}
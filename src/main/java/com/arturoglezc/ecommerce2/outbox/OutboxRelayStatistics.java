@@ -0,0 +1,10 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+/**
+ * Counters of the outbox relay since startup. The lag of an event is the time from its append to its
+ * publication; throughput is the events per second published by the last drain that found any.
+ */
+public record OutboxRelayStatistics(long published, long batches, long failures, long lastBatchSize,
+                                    long lastLagMillis, long maxLagMillis, double lastEventsPerSecond,
+                                    long oldestPendingAgeMillis) {
+}
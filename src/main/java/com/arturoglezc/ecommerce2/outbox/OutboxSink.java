@@ -0,0 +1,13 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the relay publishes outbox events, in id order. The batch is deleted from the outbox only if this
+ * returns normally, so a sink that fails sees the same events again and must tolerate duplicates.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,21 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import java.util.Locale;
+
+/**
+ * How the total of a paginated listing is obtained. The strategy actually used is sent back in {@link #HEADER}.
+ */
+public enum CountStrategy {
+    /** A {@code count(*)} next to every page query. */
+    EXACT,
+    /** An in-memory counter seeded from an exact count and kept up to date by the create and delete paths. */
+    COUNTER,
+    /** The row count estimate kept by the database statistics. */
+    ESTIMATE;
+
+    public static final String HEADER = "X-Total-Count-Strategy";
+
+    public String headerValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,16 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * A page together with the strategy its total was obtained with.
+ */
+public record CountedPage<T>(Page<T> page, CountStrategy countStrategy) {
+
+    public ResponseEntity<Page<T>> toResponse() {
+        return ResponseEntity.ok()
+                .header(CountStrategy.HEADER, countStrategy.headerValue())
+                .body(page);
+    }
+}
@@ -0,0 +1,56 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset position: the sort key and id of the last row of a slice, encoded as a URL-safe token.
+ */
+public record Cursor(String sort, String key, long id) {
+
+    private static final String SEPARATOR = "|";
+    private static final String INVALID_CURSOR = "Invalid cursor";
+
+    public static Cursor of(String sort, Object key, long id) {
+        return new Cursor(sort, String.valueOf(key), id);
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}. Returns null for an empty token, which means the first slice.
+     */
+    public static Cursor decode(String token, String expectedSort) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_CURSOR);
+            }
+            return new Cursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_CURSOR);
+        }
+    }
+
+    /**
+     * Parses the sort key, as a token can be forged with a key that is not a value of its sort.
+     */
+    public <T> T key(Function<String, T> parser) {
+        try {
+            return parser.apply(key);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_CURSOR);
+        }
+    }
+
+    public String encode() {
+        String raw = sort + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
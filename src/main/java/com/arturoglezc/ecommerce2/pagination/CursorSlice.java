@@ -0,0 +1,36 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A keyset-paginated slice. {@code next} is the {@code after} token of the following slice, or null on the last one.
+ */
+public record CursorSlice<T>(List<T> content, int size, boolean hasNext, String next) {
+
+    public static final int MAX_SIZE = 1000;
+
+    private static final String INVALID_SIZE = "Size must be between 1 and " + MAX_SIZE;
+
+    /**
+     * Limit to query with: one row more than the requested size, so the extra row tells whether there is a next slice.
+     */
+    public static Limit limitFor(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SIZE);
+        }
+        return Limit.of(size + 1);
+    }
+
+    public static <T> CursorSlice<T> of(List<T> rows, int size, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorSlice<>(rows, size, false, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorSlice<>(content, size, true, cursorOf.apply(content.getLast()).encode());
+    }
+}
@@ -0,0 +1,149 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Totals of the paginated listings by {@link CountStrategy}. Counters and estimates are kept per table and
+ * taken again from the database once older than {@code pagination.count.counter-max-age} and
+ * {@code pagination.count.estimate-max-age}, which bounds how far they can drift from the real count.
+ */
+@Component
+public class TotalCounts {
+
+    public static final String PRODUCTS = "product";
+    public static final String ORDERS = "orders";
+    public static final String ORDER_ITEMS = "order_item";
+
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String H2 = "H2";
+    private static final String POSTGRESQL_ESTIMATE = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+    private static final String H2_ESTIMATE = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES " +
+            "WHERE TABLE_SCHEMA = SCHEMA() AND LOWER(TABLE_NAME) = ?";
+    private static final String NO_ESTIMATE = "";
+    private static final long UNKNOWN = -1;
+
+    private final Map<String, Snapshot> counters = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> estimates = new ConcurrentHashMap<>();
+    private volatile String estimateQuery;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${pagination.count.counter-max-age:10m}")
+    private Duration counterMaxAge;
+
+    @Value("${pagination.count.estimate-max-age:1m}")
+    private Duration estimateMaxAge;
+
+    /**
+     * Loads a page of {@code table}. {@code exactQuery} is the usual page plus count query; {@code contentQuery}
+     * loads only the rows and is used when the total comes from a counter or an estimate. Without an estimate
+     * from the database the exact query is used and reported.
+     */
+    public <T> CountedPage<T> page(String table, CountStrategy strategy, Pageable pageable,
+                                   Function<Pageable, Page<T>> exactQuery,
+                                   Function<Pageable, List<T>> contentQuery) {
+        long total = switch (strategy) {
+            case COUNTER -> counter(table);
+            case ESTIMATE -> estimate(table);
+            case EXACT -> UNKNOWN;
+        };
+        if (total == UNKNOWN) {
+            return new CountedPage<>(exactQuery.apply(pageable), CountStrategy.EXACT);
+        }
+        return new CountedPage<>(new PageImpl<>(contentQuery.apply(pageable), pageable, total), strategy);
+    }
+
+    /**
+     * Adds {@code delta} to the counter of {@code table} once the current transaction commits, or right away
+     * outside a transaction. Counters not seeded yet pick the change up from their first count.
+     */
+    public void add(String table, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(table, delta);
+                }
+            });
+        } else {
+            addNow(table, delta);
+        }
+    }
+
+    /**
+     * Drops every counter and estimate, so the next page of each table counts again.
+     */
+    public void reset() {
+        counters.clear();
+        estimates.clear();
+    }
+
+    private void addNow(String table, long delta) {
+        Snapshot counter = counters.get(table);
+        if (counter != null) {
+            counter.value().addAndGet(delta);
+        }
+    }
+
+    private long counter(String table) {
+        return counters.compute(table, (key, counter) -> counter == null || counter.isOlderThan(counterMaxAge)
+                ? new Snapshot(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class))
+                : counter).value().get();
+    }
+
+    private long estimate(String table) {
+        return estimates.compute(table, (key, estimate) -> estimate == null || estimate.isOlderThan(estimateMaxAge)
+                ? new Snapshot(readEstimate(table))
+                : estimate).value().get();
+    }
+
+    private long readEstimate(String table) {
+        String query = estimateQuery();
+        if (query.isEmpty()) {
+            return UNKNOWN;
+        }
+        Long estimate = jdbcTemplate.query(query, resultSet -> resultSet.next() ? resultSet.getLong(1) : null, table);
+        return estimate == null || estimate <= 0 ? UNKNOWN : estimate;
+    }
+
+    private String estimateQuery() {
+        if (estimateQuery == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            estimateQuery = switch (database) {
+                case POSTGRESQL -> POSTGRESQL_ESTIMATE;
+                case H2 -> H2_ESTIMATE;
+                case null, default -> NO_ESTIMATE;
+            };
+        }
+        return estimateQuery;
+    }
+
+    private record Snapshot(AtomicLong value, long takenAt) {
+
+        Snapshot(long value) {
+            this(new AtomicLong(value), System.nanoTime());
+        }
+
+        boolean isOlderThan(Duration maxAge) {
+            return System.nanoTime() - takenAt > maxAge.toNanos();
+        }
+    }
+}
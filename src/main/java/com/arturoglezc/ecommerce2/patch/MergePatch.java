@@ -0,0 +1,147 @@
+package com.arturoglezc.ecommerce2.patch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON Merge Patch (RFC 7396) of the plain columns of an entity. Each member is converted to the type of the
+ * property it names and validated against that property's constraints alone, and the patch becomes a single
+ * {@code UPDATE} of only the patched columns.
+ */
+public final class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private static final String INVALID_PATCH = "Patch must be a JSON object";
+    private static final String UNKNOWN_FIELD = "Field cannot be patched: ";
+    private static final String INVALID_VALUE = "Invalid value for field: ";
+
+    private final Map<String, String> columns;
+    private final Map<String, Object> values;
+
+    private MergePatch(Map<String, String> columns, Map<String, Object> values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Reads a patch of {@code type}, whose patchable properties are the keys of {@code columns} mapped to their
+     * column names. Unknown or read-only fields and invalid values are rejected with 400.
+     */
+    public static MergePatch of(JsonNode patch, Class<?> type, Map<String, String> columns,
+                                ObjectMapper objectMapper, Validator validator) {
+        if (patch == null || !patch.isObject()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_PATCH);
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            String property = field.getKey();
+            if (!columns.containsKey(property)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, UNKNOWN_FIELD + property);
+            }
+            Object value;
+            try {
+                value = field.getValue().isNull() ? null
+                        : objectMapper.treeToValue(field.getValue(), BeanUtils.getPropertyDescriptor(type, property).getPropertyType());
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_VALUE + property);
+            }
+            if (!validator.validateValue(type, property, value).isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_VALUE + property);
+            }
+            values.put(property, value);
+        }
+        return new MergePatch(columns, values);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public boolean has(String property) {
+        return values.containsKey(property);
+    }
+
+    public Object get(String property) {
+        return values.get(property);
+    }
+
+    /**
+     * The patched properties and their new values, in the order they were given.
+     */
+    public Map<String, Object> values() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    public MergePatch without(String property) {
+        Map<String, Object> remaining = new LinkedHashMap<>(values);
+        remaining.remove(property);
+        return new MergePatch(columns, remaining);
+    }
+
+    /**
+     * Sets the patched properties on an entity, for changes that cannot be written as a plain update.
+     */
+    public void applyTo(Object entity) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(entity);
+        values.forEach(wrapper::setPropertyValue);
+    }
+
+    /**
+     * The statement setting the patched columns of row {@code id} of {@code table} and bumping its version.
+     */
+    public Update toUpdate(String table, Long id) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        List<Object> args = new ArrayList<>();
+        values.forEach((property, value) -> {
+            sql.append(columns.get(property)).append(" = ?, ");
+            args.add(value instanceof Enum<?> constant ? constant.name() : value);
+        });
+        sql.append("version = version + 1 WHERE id = ?");
+        args.add(id);
+        return new Update(sql, args);
+    }
+
+    public static final class Update {
+
+        private final StringBuilder sql;
+        private final List<Object> args;
+
+        private Update(StringBuilder sql, List<Object> args) {
+            this.sql = sql;
+            this.args = args;
+        }
+
+        public Update and(String condition, Object... conditionArgs) {
+            sql.append(" AND ").append(condition);
+            Collections.addAll(args, conditionArgs);
+            return this;
+        }
+
+        public Update andIn(String column, Collection<?> columnValues) {
+            return and(column + " IN (" + String.join(", ", Collections.nCopies(columnValues.size(), "?")) + ")",
+                    columnValues.toArray());
+        }
+
+        /**
+         * Returns the number of rows updated: 0 when the row is missing or a condition does not hold.
+         */
+        public int execute(JdbcTemplate jdbcTemplate) {
+            return jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+}
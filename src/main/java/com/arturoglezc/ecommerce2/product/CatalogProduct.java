@@ -0,0 +1,12 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A product as read by the reactive catalog, with the same JSON as {@link Product}: {@code stock} is the total,
+ * shards included.
+ */
+@Table("product")
+public record CatalogProduct(@Id Long id, String name, Double price, Integer stock, int stockShards, Long version) {
+}
@@ -1,12 +1,23 @@
 package com.arturoglezc.ecommerce2.product;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Formula;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Product {
 
     @Id
@@ -26,6 +37,20 @@ public class Product {
     @PositiveOrZero
     private Integer stock;
 
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int stockShards;
+
+    @Version
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @Formula("(CASE WHEN stock_shards > 0 THEN (SELECT COALESCE(SUM(s.stock), 0) FROM product_stock_shard s WHERE s.product_id = id) ELSE 0 END)")
+    @JsonIgnore
+    private Integer shardedStock;
+
     public Long getId() {
         return id;
     }
@@ -50,14 +75,40 @@ public class Product {
         this.price = price;
     }
 
+    /**
+     * Total stock: the product row plus the sum of its stock shards when sharding is enabled.
+     */
     public Integer getStock() {
-        return stock;
+        if (stock == null || shardedStock == null) {
+            return stock;
+        }
+        return stock + shardedStock;
     }
 
     public void setStock(Integer stock) {
         this.stock = stock;
     }
 
+    Integer getBaseStock() {
+        return stock;
+    }
+
+    public int getStockShards() {
+        return stockShards;
+    }
+
+    public void setStockShards(int stockShards) {
+        this.stockShards = stockShards;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Product() {
     }
 
@@ -0,0 +1,90 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The second-level cache region of {@link Product}. Hibernate keeps it in sync with changes made through
+ * JPA; writes it cannot see, such as shard counters behind the stock formula or JDBC batches, must evict
+ * the product here.
+ */
+@Component
+public class ProductCache {
+
+    static final String REGION = Product.class.getName();
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductCachePuts productCachePuts;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Evicts a product. Inside a transaction the entry is soft-locked until the transaction completes, the
+     * way Hibernate does for its own updates, so a read whose transaction started before the commit cannot
+     * put the state from before the commit back into the cache.
+     */
+    public void evict(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entityManagerFactory.getCache().evict(Product.class, productId);
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Product.class);
+        EntityDataAccess access = persister.getCacheAccessStrategy();
+        Object key = access.generateCacheKey(productId, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock lock = access.lockItem(session, key, null);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                access.unlockItem(session, key, lock);
+            }
+        });
+    }
+
+    /**
+     * Whether the rows the current transaction reads go into the cache; not in a read served by a replica, which
+     * ReplicaReadsJpaDialect keeps out of it.
+     */
+    public boolean isFilledByCurrentTransaction() {
+        return entityManager.unwrap(Session.class).getCacheMode().isPutEnabled();
+    }
+
+    public boolean contains(Long productId) {
+        return entityManagerFactory.getCache().contains(Product.class, productId);
+    }
+
+    /**
+     * Read from the Caffeine cache behind the region, so the counters do not depend on Hibernate statistics.
+     */
+    public ProductCacheStatistics getStatistics() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        if (!(sessionFactory.getCache().getRegionFactory() instanceof JCacheRegionFactory regionFactory)) {
+            return new ProductCacheStatistics(0, 0, 0, 0, 0);
+        }
+        javax.cache.Cache<Object, Object> cache = regionFactory.getCacheManager().getCache(REGION);
+        if (cache == null) {
+            return new ProductCacheStatistics(0, 0, 0, 0, 0);
+        }
+        com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        CacheStats stats = caffeine.stats();
+        return new ProductCacheStatistics(stats.hitCount(), stats.missCount(), productCachePuts.count(),
+                stats.evictionCount(), caffeine.estimatedSize());
+    }
+}
@@ -0,0 +1,48 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Creates the bounded, expiring Caffeine region Hibernate uses as second-level cache for {@link Product}
+ * and hands its cache manager to Hibernate. The region records its own hit, miss and eviction statistics.
+ */
+@Configuration
+public class ProductCacheConfiguration {
+
+    @Bean
+    public ProductCachePuts productCachePuts() {
+        return new ProductCachePuts();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${products.cache.maximum-size:10000}") long maximumSize,
+                                              @Value("${products.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                                              ProductCachePuts productCachePuts) {
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        configuration.setNativeStatisticsEnabled(true);
+        configuration.addCacheEntryListenerConfiguration(new MutableCacheEntryListenerConfiguration<>(
+                FactoryBuilder.factoryOf(productCachePuts), null, false, false));
+        cacheManager.createCache(ProductCache.REGION, configuration);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
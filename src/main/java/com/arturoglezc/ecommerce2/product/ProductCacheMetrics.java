@@ -0,0 +1,72 @@
+package com.arturoglezc.ecommerce2.product;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the statistics of the product second-level cache, the product list page cache, the product name
+ * index and the product change stream as meters.
+ */
+@Component
+public class ProductCacheMetrics implements MeterBinder {
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductChangeStream productChangeStream;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("products.cache.hits", productCache, cache -> cache.getStatistics().hits())
+                .register(registry);
+        FunctionCounter.builder("products.cache.misses", productCache, cache -> cache.getStatistics().misses())
+                .register(registry);
+        FunctionCounter.builder("products.cache.evictions", productCache, cache -> cache.getStatistics().evictions())
+                .register(registry);
+        Gauge.builder("products.cache.size", productCache, cache -> cache.getStatistics().size())
+                .register(registry);
+
+        FunctionCounter.builder("products.page_cache.hits", productPageCache, cache -> cache.getStatistics().hits())
+                .register(registry);
+        FunctionCounter.builder("products.page_cache.misses", productPageCache, cache -> cache.getStatistics().misses())
+                .register(registry);
+        Gauge.builder("products.page_cache.hit_ratio", productPageCache, cache -> cache.getStatistics().hitRatio())
+                .register(registry);
+        Gauge.builder("products.page_cache.bytes", productPageCache, cache -> cache.getStatistics().bytes())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("products.page_cache.max_bytes", productPageCache, cache -> cache.getStatistics().maxBytes())
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("products.suggest.products", productSuggestIndex, index -> index.getStatistics().products())
+                .register(registry);
+        Gauge.builder("products.suggest.tokens", productSuggestIndex, index -> index.getStatistics().tokens())
+                .register(registry);
+        Gauge.builder("products.suggest.bytes", productSuggestIndex, index -> index.getStatistics().estimatedBytes())
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("products.stream.subscribers", productChangeStream, stream -> stream.getStatistics().subscribers())
+                .register(registry);
+        FunctionCounter.builder("products.stream.events", productChangeStream, stream -> stream.getStatistics().events())
+                .register(registry);
+        FunctionCounter.builder("products.stream.conflations", productChangeStream,
+                        stream -> stream.getStatistics().conflations())
+                .register(registry);
+        FunctionCounter.builder("products.stream.stalled", productChangeStream,
+                        stream -> stream.getStatistics().stalled())
+                .register(registry);
+    }
+}
@@ -0,0 +1,30 @@
+package com.arturoglezc.ecommerce2.product;
+
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryUpdatedListener;
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the entries Hibernate puts into the product region, which Caffeine's own statistics do not record.
+ */
+public class ProductCachePuts implements CacheEntryCreatedListener<Object, Object>,
+        CacheEntryUpdatedListener<Object, Object>, Serializable {
+
+    private final LongAdder puts = new LongAdder();
+
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<?, ?>> events) {
+        events.forEach(event -> puts.increment());
+    }
+
+    @Override
+    public void onUpdated(Iterable<CacheEntryEvent<?, ?>> events) {
+        events.forEach(event -> puts.increment());
+    }
+
+    public long count() {
+        return puts.sum();
+    }
+}
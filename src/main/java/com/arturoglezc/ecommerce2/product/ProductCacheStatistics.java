@@ -0,0 +1,9 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * Counters of the product cache region since startup. Hits and misses count every lookup of the region,
+ * including the one Hibernate makes before it puts a loaded product. Evictions are entries dropped for size
+ * or expiry; invalidations after writes are not counted.
+ */
+public record ProductCacheStatistics(long hits, long misses, long puts, long evictions, long size) {
+}
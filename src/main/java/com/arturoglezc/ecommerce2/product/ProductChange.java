@@ -0,0 +1,11 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * The price and total stock of a product as pushed to stream subscribers; a deleted product has neither.
+ */
+public record ProductChange(Long id, Double price, Integer stock, boolean deleted) {
+
+    static ProductChange deleted(Long id) {
+        return new ProductChange(id, null, null, true);
+    }
+}
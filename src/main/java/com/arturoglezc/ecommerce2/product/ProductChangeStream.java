@@ -0,0 +1,218 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.inventory.StockLedger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the price and stock of products to Server-Sent Events subscribers. Writers report the products they
+ * touch with {@link #changed(Long)}; the committed changes of each {@code products.stream.coalesce-window-ms}
+ * are read back with one query and each subscriber only gets values that differ from the last ones it got, so a
+ * burst of orders for a hot product costs its followers one event per window. An open stream holds no thread while idle:
+ * each subscriber's events are written by a virtual thread started when it has some to send, so a client that stops
+ * reading only blocks its own writes. Every {@code products.stream.heartbeat-interval-ms} the open streams get a
+ * comment, and those whose write has been blocked for longer than {@code products.stream.send-timeout} are closed.
+ */
+@Component
+public class ProductChangeStream {
+
+    public static final int MAX_PRODUCTS = 100;
+
+    private static final String INVALID_PRODUCTS = "Between 1 and " + MAX_PRODUCTS + " product ids must be given";
+    private static final String STALLED = "Subscriber stopped reading";
+    private static final int MAX_IDS_PER_QUERY = 1_000;
+    private static final String SELECT_CHANGES = "SELECT p.id, p.price, p.stock + COALESCE((SELECT SUM(s.stock) "
+            + "FROM product_stock_shard s WHERE s.product_id = p.id), 0) FROM product p WHERE p.id IN (%s)";
+
+    private final Map<Long, Set<ProductChangeSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<ProductChangeSubscription> open = ConcurrentHashMap.newKeySet();
+    private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong subscribers = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong conflations = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+    private ExecutorService senders;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+
+    @Value("${products.stream.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${products.stream.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${products.stream.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    @PostConstruct
+    public void start() {
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("product-stream-", 1).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of the given products, starting with their current values. The client is expected to
+     * reconnect once {@code products.stream.timeout} closes it, as browsers do with {@code EventSource}.
+     */
+    public SseEmitter subscribe(List<Long> ids) {
+        Set<Long> productIds = ids == null ? Set.of() : new LinkedHashSet<>(ids);
+        if (productIds.isEmpty() || productIds.size() > MAX_PRODUCTS || productIds.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_PRODUCTS);
+        }
+        return subscribe(productIds, new SseEmitter(timeout.toMillis()));
+    }
+
+    SseEmitter subscribe(Set<Long> productIds, SseEmitter emitter) {
+        ProductChangeSubscription subscription = new ProductChangeSubscription(productIds, emitter, bufferSize,
+                senders, conflations, this::unsubscribe);
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(subscription::close);
+        emitter.onError(error -> subscription.close());
+
+        subscribers.incrementAndGet();
+        open.add(subscription);
+        for (Long productId : productIds) {
+            subscriptions.compute(productId, (id, followers) -> {
+                Set<ProductChangeSubscription> updated = followers != null ? followers : ConcurrentHashMap.newKeySet();
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        load(productIds).forEach(subscription::offer);
+        return emitter;
+    }
+
+    /**
+     * Marks the price or stock of a product as changed, once the current transaction commits. Whether anybody
+     * follows it is only checked when the changes are published, as a stream may open before the commit.
+     */
+    public void changed(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changedIds.add(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changedIds.add(productId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${products.stream.coalesce-window-ms:250}")
+    public void publish() {
+        if (changedIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(changedIds);
+        changedIds.removeAll(ids);
+        ids.removeIf(id -> !subscriptions.containsKey(id));
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (ProductChange change : load(ids)) {
+            Set<ProductChangeSubscription> followers = subscriptions.get(change.id());
+            if (followers == null) {
+                continue;
+            }
+            for (ProductChangeSubscription subscription : followers) {
+                if (subscription.offer(change)) {
+                    events.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the streams whose write has been blocked for longer than {@code products.stream.send-timeout}, and
+     * sends a comment to the others.
+     */
+    @Scheduled(fixedDelayString = "${products.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long sendTimeoutNanos = sendTimeout.toNanos();
+        for (ProductChangeSubscription subscription : open) {
+            if (!subscription.isStalled(sendTimeoutNanos)) {
+                subscription.heartbeat();
+            } else if (subscription.close()) {
+                stalled.incrementAndGet();
+                subscription.completeWithError(new IOException(STALLED));
+            }
+        }
+    }
+
+    public ProductChangeStreamStatistics getStatistics() {
+        return new ProductChangeStreamStatistics(subscribers.get(), subscriptions.size(), events.get(),
+                conflations.get(), stalled.get());
+    }
+
+    private void unsubscribe(ProductChangeSubscription subscription) {
+        subscribers.decrementAndGet();
+        open.remove(subscription);
+        for (Long productId : subscription.productIds()) {
+            subscriptions.computeIfPresent(productId, (id, followers) -> {
+                followers.remove(subscription);
+                return followers.isEmpty() ? null : followers;
+            });
+        }
+    }
+
+    /**
+     * Current price and total stock, shards included, of the given products. The stock ledger, when enabled, is
+     * ahead of the table by the deltas it has not written yet, so its stock is preferred.
+     */
+    private List<ProductChange> load(Collection<Long> ids) {
+        List<Long> productIds = new ArrayList<>(ids);
+        Map<Long, ProductChange> changes = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, productIds.size()));
+            String sql = SELECT_CHANGES.formatted(String.join(",", Collections.nCopies(chunk.size(), "?")));
+            jdbcTemplate.query(sql, rs -> {
+                changes.put(rs.getLong(1), new ProductChange(rs.getLong(1), rs.getDouble(2), rs.getInt(3), false));
+            }, chunk.toArray());
+        }
+        List<ProductChange> loaded = new ArrayList<>(productIds.size());
+        for (Long id : productIds) {
+            ProductChange change = changes.get(id);
+            if (change == null) {
+                loaded.add(ProductChange.deleted(id));
+                continue;
+            }
+            Long available = stockLedger != null ? stockLedger.getAvailable(id) : null;
+            loaded.add(available == null ? change : new ProductChange(id, change.price(), Math.toIntExact(available), false));
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,10 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * Open product streams, products followed by at least one of them, changes handed to subscribers, the times
+ * a subscriber fell behind and had its queue collapsed to the latest change per product, and the streams closed
+ * because their client stopped reading.
+ */
+public record ProductChangeStreamStatistics(long subscribers, long products, long events, long conflations,
+                                            long stalled) {
+}
@@ -0,0 +1,173 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One open product stream. A change equal to the last one offered for its product is dropped; the others queue
+ * up, at most {@code capacity} of them, while a sender thread writes the previous ones. A subscriber that falls
+ * further behind has its queue collapsed into the latest change of each product until it catches up, so a slow
+ * client skips intermediate values but still ends with the current ones, and never holds more than one change
+ * per product it follows. A client that stops reading blocks the write in progress, so the owner closes a
+ * subscription whose write has not returned for too long, see {@link #isStalled(long)}.
+ */
+class ProductChangeSubscription {
+
+    private static final String CHANGE = "change";
+    private static final String DELETED = "deleted";
+    private static final String HEARTBEAT = "heartbeat";
+
+    private final Set<Long> productIds;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor sender;
+    private final AtomicLong conflations;
+    private final Consumer<ProductChangeSubscription> onClose;
+
+    private final Map<Long, ProductChange> offered = new HashMap<>();
+    private final Deque<ProductChange> queue = new ArrayDeque<>();
+    private final Map<Long, ProductChange> latest = new LinkedHashMap<>();
+    private boolean heartbeat;
+    private boolean sending;
+    private boolean closed;
+    private volatile long writingSince;
+
+    ProductChangeSubscription(Set<Long> productIds, SseEmitter emitter, int capacity, Executor sender,
+                              AtomicLong conflations, Consumer<ProductChangeSubscription> onClose) {
+        this.productIds = productIds;
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.sender = sender;
+        this.conflations = conflations;
+        this.onClose = onClose;
+    }
+
+    Set<Long> productIds() {
+        return productIds;
+    }
+
+    /**
+     * Queues a change unless it repeats the last one of its product. Returns whether it was queued.
+     */
+    boolean offer(ProductChange change) {
+        synchronized (this) {
+            if (closed || change.equals(offered.put(change.id(), change))) {
+                return false;
+            }
+            if (!latest.isEmpty()) {
+                latest.put(change.id(), change);
+            } else if (queue.size() < capacity) {
+                queue.add(change);
+            } else {
+                queue.forEach(queued -> latest.put(queued.id(), queued));
+                queue.clear();
+                latest.put(change.id(), change);
+                conflations.incrementAndGet();
+            }
+            if (sending) {
+                return true;
+            }
+            sending = true;
+        }
+        sender.execute(this::send);
+        return true;
+    }
+
+    /**
+     * Queues an SSE comment, which keeps proxies from closing a stream with no changes to send.
+     */
+    void heartbeat() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            heartbeat = true;
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        sender.execute(this::send);
+    }
+
+    /**
+     * Whether a write has been blocked for more than {@code timeoutNanos}, as by a client that stopped reading.
+     */
+    boolean isStalled(long timeoutNanos) {
+        long since = writingSince;
+        return since != 0 && System.nanoTime() - since > timeoutNanos;
+    }
+
+    /**
+     * Stops queueing and lets the owner forget the subscription. Returns false if it was already closed.
+     */
+    boolean close() {
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            queue.clear();
+            latest.clear();
+        }
+        onClose.accept(this);
+        return true;
+    }
+
+    void completeWithError(Throwable error) {
+        emitter.completeWithError(error);
+    }
+
+    private void send() {
+        while (true) {
+            List<ProductChange> changes;
+            boolean sendHeartbeat;
+            synchronized (this) {
+                if (closed || (queue.isEmpty() && latest.isEmpty() && !heartbeat)) {
+                    sending = false;
+                    return;
+                }
+                changes = new ArrayList<>(latest.isEmpty() ? queue : latest.values());
+                sendHeartbeat = heartbeat;
+                queue.clear();
+                latest.clear();
+                heartbeat = false;
+            }
+            try {
+                if (sendHeartbeat) {
+                    write(SseEmitter.event().comment(HEARTBEAT));
+                }
+                for (ProductChange change : changes) {
+                    write(SseEmitter.event()
+                            .name(change.deleted() ? DELETED : CHANGE)
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            } catch (Exception e) {
+                if (close()) {
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private void write(SseEmitter.SseEventBuilder event) throws Exception {
+        writingSince = System.nanoTime();
+        try {
+            emitter.send(event);
+        } finally {
+            writingSince = 0;
+        }
+    }
+}
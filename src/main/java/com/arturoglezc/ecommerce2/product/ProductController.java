@@ -1,30 +1,105 @@
 package com.arturoglezc.ecommerce2.product;
 
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
+import com.arturoglezc.ecommerce2.patch.MergePatch;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final String GZIP = "gzip";
+
     @Autowired
     private ProductService productService;
 
+    /**
+     * Serves the page from its pre-encoded JSON, gzip-compressed when the client accepts it.
+     */
     @GetMapping
-    public Page<Product> getAllProducts(@RequestParam(defaultValue = "0") int page,
-                                        @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<byte[]> getAllProducts(@RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "10") int size,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         Pageable pageable = PageRequest.of(page, size);
-        return productService.getAllProducts(pageable);
+        ProductPageCache.EncodedPage encodedPage = productService.getEncodedProducts(pageable);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .header(CountStrategy.HEADER, encodedPage.countStrategy().headerValue());
+        if (encodedPage.gzip() != null && acceptEncoding != null && acceptEncoding.contains(GZIP)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(encodedPage.gzip());
+        }
+        return response.body(encodedPage.json());
+    }
+
+    @GetMapping(params = "after")
+    public CursorSlice<Product> getProductsAfter(@RequestParam(defaultValue = "") String after,
+                                                 @RequestParam(defaultValue = "10") int size) {
+        return productService.getProductsAfter(after, size);
+    }
+
+    /**
+     * Server-Sent Events with the price and stock of the given products: their current values first, then
+     * {@code change} events as they change and {@code deleted} events if they are deleted.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProductChanges(@RequestParam List<Long> ids) {
+        return productService.streamProductChanges(ids);
+    }
+
+    @GetMapping("/stream-stats")
+    public ProductChangeStreamStatistics getChangeStreamStatistics() {
+        return productService.getChangeStreamStatistics();
+    }
+
+    @GetMapping("/cache-stats")
+    public ProductCacheStatistics getCacheStatistics() {
+        return productService.getCacheStatistics();
+    }
+
+    @GetMapping("/page-cache-stats")
+    public ProductPageCacheStatistics getPageCacheStatistics() {
+        return productService.getPageCacheStatistics();
+    }
+
+    @GetMapping("/suggest")
+    public List<ProductSuggestion> suggestProducts(@RequestParam String q,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        return productService.suggestProducts(q, limit);
+    }
+
+    @PostMapping("/suggest/rebuild")
+    public ProductSuggestIndexStatistics rebuildSuggestIndex() {
+        return productService.rebuildSuggestIndex();
+    }
+
+    @GetMapping("/suggest-stats")
+    public ProductSuggestIndexStatistics getSuggestIndexStatistics() {
+        return productService.getSuggestIndexStatistics();
     }
 
     @GetMapping("/{id}")
-    public Product getProductById(@PathVariable Long id) {
-        return productService.getProductById(id);
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        Product product = productService.getProductById(id);
+        String eTag = ProductService.eTagOf(product);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(product);
     }
 
     @PostMapping
@@ -34,8 +109,17 @@ public class ProductController {
     }
 
     @PutMapping("/{id}")
-    public Product updateProduct(@PathVariable Long id, @Valid @RequestBody Product product) {
-        return productService.updateProduct(id, product);
+    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody Product product,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product updatedProduct = productService.updateProduct(id, product, ifMatch);
+        return ResponseEntity.ok().eTag(ProductService.eTagOf(updatedProduct)).body(updatedProduct);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patchProduct(@PathVariable Long id, @RequestBody JsonNode patch,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        productService.patchProduct(id, patch, ifMatch);
     }
 
     @DeleteMapping("/{id}")
@@ -43,4 +127,19 @@ public class ProductController {
     public void deleteProduct(@PathVariable Long id) {
         productService.deleteProduct(id);
     }
+
+    @GetMapping("/{id}/stock-shards")
+    public List<ProductStockShard> getStockShards(@PathVariable Long id) {
+        return productService.getStockShards(id);
+    }
+
+    @PutMapping("/{id}/stock-shards")
+    public Product enableStockSharding(@PathVariable Long id, @RequestParam int count) {
+        return productService.enableStockSharding(id, count);
+    }
+
+    @DeleteMapping("/{id}/stock-shards")
+    public Product disableStockSharding(@PathVariable Long id) {
+        return productService.disableStockSharding(id);
+    }
 }
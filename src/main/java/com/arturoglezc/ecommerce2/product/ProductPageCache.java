@@ -0,0 +1,140 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded JSON (and gzip) of the first pages of the product list, so hot pages are served without touching
+ * the database or Jackson. Entries belong to a generation of the catalog: any product write starts a new
+ * generation and drops every cached page, and a page loaded while a write happened is never stored.
+ * The total size of the cached bytes is bounded by {@code products.page-cache.max-bytes}.
+ */
+@Component
+public class ProductPageCache {
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<Key, EncodedPage> pages;
+    private final long maxBytes;
+    private final int maxPage;
+    private final boolean gzip;
+    private final ObjectMapper objectMapper;
+
+    public ProductPageCache(ObjectMapper objectMapper,
+                            @Value("${products.page-cache.max-bytes:16777216}") long maxBytes,
+                            @Value("${products.page-cache.max-page:4}") int maxPage,
+                            @Value("${products.page-cache.gzip:true}") boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.maxPage = maxPage;
+        this.gzip = gzip;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, EncodedPage>weigher((key, page) -> page.size())
+                .recordStats()
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Returns the encoded page, loading it on a miss and caching it if {@code fill} is set. Pages past
+     * {@code products.page-cache.max-page} are encoded on every call and not cached.
+     */
+    public EncodedPage get(Pageable pageable, boolean fill, Supplier<CountedPage<Product>> loader) {
+        if (pageable.getPageNumber() >= maxPage) {
+            CountedPage<Product> page = loader.get();
+            return new EncodedPage(encode(page), null, page.countStrategy());
+        }
+        long currentGeneration = generation.get();
+        Key key = new Key(currentGeneration, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+        EncodedPage cached = pages.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CountedPage<Product> countedPage = loader.get();
+        byte[] json = encode(countedPage);
+        EncodedPage page = new EncodedPage(json, gzip ? compress(json) : null, countedPage.countStrategy());
+        if (fill && generation.get() == currentGeneration) {
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Starts a new generation now and, inside a transaction, again once it completes, so a page read
+     * before the commit is not kept.
+     */
+    public void invalidate() {
+        nextGeneration();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    nextGeneration();
+                }
+            });
+        }
+    }
+
+    public ProductPageCacheStatistics getStatistics() {
+        CacheStats stats = pages.stats();
+        long bytes = pages.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+        return new ProductPageCacheStatistics(stats.hitCount(), stats.missCount(), stats.hitRate(),
+                pages.estimatedSize(), bytes, maxBytes, generation.get());
+    }
+
+    private void nextGeneration() {
+        generation.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    private byte[] encode(CountedPage<Product> page) {
+        try {
+            return objectMapper.writeValueAsBytes(page.page());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(bytes)) {
+            gzipStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private record Key(long generation, int page, int size, String sort) {
+    }
+
+    /**
+     * A page as JSON bytes, plus its gzip encoding when compression is enabled and the page is cached, and the
+     * strategy its total was counted with.
+     */
+    public record EncodedPage(byte[] json, byte[] gzip, CountStrategy countStrategy) {
+
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
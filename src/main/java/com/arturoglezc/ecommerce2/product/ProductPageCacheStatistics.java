@@ -0,0 +1,8 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * Counters of the product list page cache since startup, and the bytes it currently holds against its ceiling.
+ */
+public record ProductPageCacheStatistics(long hits, long misses, double hitRatio, long pages, long bytes,
+                                         long maxBytes, long generation) {
+}
@@ -1,11 +1,65 @@
 package com.arturoglezc.ecommerce2.product;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> findAll(Pageable pageable);
+
+    List<Product> findAllBy(Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<Product> findByIdAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT new com.arturoglezc.ecommerce2.product.ProductSuggestIndex$Source(p.id, p.name, " +
+            "CASE WHEN p.stock > 0 OR EXISTS (SELECT s.id FROM ProductStockShard s WHERE s.productId = p.id AND s.stock > 0) " +
+            "THEN true ELSE false END) FROM Product p")
+    List<ProductSuggestIndex.Source> findSuggestSources();
+
+    @Query("SELECT p.id FROM Product p WHERE p.stock <= 0 " +
+            "AND NOT EXISTS (SELECT s.id FROM ProductStockShard s WHERE s.productId = p.id AND s.stock > 0)")
+    List<Long> findOutOfStockIds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Takes {@code quantity} units from the product in a single guarded statement.
+     * Returns the number of affected rows: 0 when the product is missing or has not enough stock.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.version = p.version + 1 WHERE p.id = :id AND p.stock >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Deletes a product without loading it first. Returns the number of affected rows: 0 when it is missing.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Product p WHERE p.id = :id")
+    int deleteByIdWithoutLoading(@Param("id") Long id);
+
+    /**
+     * Gives {@code quantity} units back to the product. Returns the number of affected rows.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity, p.version = p.version + 1 WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
 }
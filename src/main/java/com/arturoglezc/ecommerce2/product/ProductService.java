@@ -1,47 +1,311 @@
 package com.arturoglezc.ecommerce2.product;
 
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.inventory.StockLedger;
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.Cursor;
+import com.arturoglezc.ecommerce2.pagination.CursorSlice;
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
+import com.arturoglezc.ecommerce2.patch.MergePatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @Service
+@Timed(value = "ecommerce.service", histogram = true)
 public class ProductService {
 
+    private static final String SORT_BY_ID = "id";
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final String INVALID_SUGGEST_LIMIT = "Limit must be between 1 and " + MAX_SUGGESTIONS;
+    private static final String NAME = "name";
+    private static final String STOCK = "stock";
+    private static final Map<String, String> PATCHABLE_COLUMNS = Map.of(NAME, "name", "price", "price", STOCK, "stock");
+    private static final String REPLACE_PRODUCT = "UPDATE product SET name = ?, price = ?, stock = ?, "
+            + "version = version + 1 WHERE id = ? AND stock_shards = 0";
+    private static final String SELECT_VERSION = "SELECT version FROM product WHERE id = ?";
+    private static final String MATCHES_ETAG = "(version = ? AND stock = ?)";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductStockShardService productStockShardService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductChangeStream productChangeStream;
+
+    @Autowired
+    private TotalCounts totalCounts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${products.count-strategy:exact}")
+    private CountStrategy countStrategy;
+
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+
+    @Transactional(readOnly = true)
     public Page<Product> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable);
     }
 
+    /**
+     * A page read from a replica is not stored in the page cache, which must not keep a page from a replica that
+     * has not caught up with the write that invalidated it; like the second-level cache, it is filled only by
+     * reads on the primary.
+     */
+    @Transactional(readOnly = true)
+    public ProductPageCache.EncodedPage getEncodedProducts(Pageable pageable) {
+        return productPageCache.get(pageable, productCache.isFilledByCurrentTransaction(), () -> totalCounts.page(TotalCounts.PRODUCTS, countStrategy, pageable,
+                productRepository::findAll, productRepository::findAllBy));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorSlice<Product> getProductsAfter(String after, int size) {
+        Cursor cursor = Cursor.decode(after, SORT_BY_ID);
+        List<Product> products = productRepository.findByIdAfter(
+                cursor == null ? Long.MIN_VALUE : cursor.id(), CursorSlice.limitFor(size));
+        return CursorSlice.of(products, size, product -> Cursor.of(SORT_BY_ID, product.getId(), product.getId()));
+    }
+
+    @Transactional(readOnly = true)
     public Product getProductById(Long id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        productPageCache.invalidate();
+        Product savedProduct = productRepository.save(product);
+        totalCounts.add(TotalCounts.PRODUCTS, 1);
+        productSuggestIndex.put(savedProduct);
+        return savedProduct;
     }
 
+    @Transactional
     public Product updateProduct(Long id, Product product) {
-        Optional<Product> existingProduct = productRepository.findById(id);
-        if (existingProduct.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        return updateProduct(id, product, null);
+    }
+
+    /**
+     * Replaces a product with one update, guarded when {@code ifMatch} is set by the version and stock of the
+     * entity tags it lists, so no read comes before the write; the new version is read back for the response.
+     * Only an update that matches no row pays for the read telling a missing product, a stale entity tag and a
+     * sharded product apart. The stock of a sharded product lives in its shards and is spread across them.
+     */
+    @Transactional
+    public Product updateProduct(Long id, Product product, String ifMatch) {
+        resetInLedger(id);
+        productPageCache.invalidate();
+        List<Object> args = new ArrayList<>(List.of(product.getName(), product.getPrice(), product.getStock(), id));
+        String sql = ETags.isConditional(ifMatch) ? REPLACE_PRODUCT + " AND " + eTagCondition(ifMatch, args) : REPLACE_PRODUCT;
+        Product savedProduct;
+        if (jdbcTemplate.update(sql, args.toArray()) == 0) {
+            Product existingProduct = findProductForUpdate(id, ifMatch);
+            existingProduct.setName(product.getName());
+            existingProduct.setPrice(product.getPrice());
+            savedProduct = productStockShardService.replaceStock(id, product.getStock());
+        } else {
+            productCache.evict(id);
+            product.setId(id);
+            product.setStockShards(0);
+            product.setVersion(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, id));
+            savedProduct = product;
+        }
+        productSuggestIndex.put(savedProduct);
+        productChangeStream.changed(id);
+        return savedProduct;
+    }
+
+    /**
+     * Applies a JSON Merge Patch of the name, price and stock as one update of only the patched columns, whose
+     * affected-row count stands in for the existence check. With {@code ifMatch} set, the update is guarded by
+     * the version and stock of the entity tags it lists. The stock of a sharded product lives in its shards, so
+     * patching it is written through {@link ProductStockShardService#replaceStock(Long, int)} instead.
+     */
+    @Transactional
+    public void patchProduct(Long id, JsonNode patch, String ifMatch) {
+        MergePatch changes = MergePatch.of(patch, Product.class, PATCHABLE_COLUMNS, objectMapper, validator);
+        if (changes.isEmpty()) {
+            ETags.checkIfMatch(ifMatch, eTagOf(getProductById(id)));
+            return;
         }
-        product.setId(id);
-        return productRepository.save(product);
+        MergePatch.Update update = changes.toUpdate("product", id);
+        if (ETags.isConditional(ifMatch)) {
+            List<Object> args = new ArrayList<>();
+            update.and(eTagCondition(ifMatch, args), args.toArray());
+        }
+        if (changes.has(STOCK)) {
+            update.and("stock_shards = 0");
+            resetInLedger(id);
+        }
+        productPageCache.invalidate();
+        if (update.execute(jdbcTemplate) == 0) {
+            Product product = findProductForUpdate(id, ifMatch);
+            changes.without(STOCK).applyTo(product);
+            productStockShardService.replaceStock(id, (Integer) changes.get(STOCK));
+        }
+        productCache.evict(id);
+        productSuggestIndex.patch(id, (String) changes.get(NAME), (Integer) changes.get(STOCK));
+        productChangeStream.changed(id);
     }
 
+    /**
+     * Deletes a product and its stock shards without loading it; the affected-row count tells a missing
+     * product apart.
+     */
+    @Transactional
     public void deleteProduct(Long id) {
-        Optional<Product> existingProduct = productRepository.findById(id);
-        if (existingProduct.isEmpty()) {
+        resetInLedger(id);
+        productPageCache.invalidate();
+        productStockShardService.deleteShards(id);
+        if (productRepository.deleteByIdWithoutLoading(id) == 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
-        productRepository.deleteById(id);
+        totalCounts.add(TotalCounts.PRODUCTS, -1);
+        productSuggestIndex.remove(id);
+        productChangeStream.changed(id);
+    }
+
+    /**
+     * Shards the stock of a product. The stock ledger, when enabled, is evicted in the same transaction, so no
+     * reservation is journaled against the product row while its stock moves into the shards.
+     */
+    @Transactional
+    public Product enableStockSharding(Long id, int shardCount) {
+        evictFromLedger(id);
+        productPageCache.invalidate();
+        return productStockShardService.rebalance(id, shardCount);
+    }
+
+    @Transactional
+    public Product disableStockSharding(Long id) {
+        evictFromLedger(id);
+        productPageCache.invalidate();
+        return productStockShardService.disableSharding(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductStockShard> getStockShards(Long id) {
+        getProductById(id);
+        return productStockShardService.getShards(id);
+    }
+
+    /**
+     * The stock of a sharded product changes without a new version, so the tag covers both.
+     */
+    static String eTagOf(Product product) {
+        return ETags.of(product.getVersion(), product.getStock());
+    }
+
+    public List<ProductSuggestion> suggestProducts(String query, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SUGGEST_LIMIT);
+        }
+        return productSuggestIndex.suggest(query, limit);
+    }
+
+    public ProductSuggestIndexStatistics rebuildSuggestIndex() {
+        return productSuggestIndex.rebuild();
+    }
+
+    public ProductSuggestIndexStatistics getSuggestIndexStatistics() {
+        return productSuggestIndex.getStatistics();
+    }
+
+    public SseEmitter streamProductChanges(List<Long> ids) {
+        return productChangeStream.subscribe(ids);
+    }
+
+    public ProductChangeStreamStatistics getChangeStreamStatistics() {
+        return productChangeStream.getStatistics();
+    }
+
+    public ProductCacheStatistics getCacheStatistics() {
+        return productCache.getStatistics();
+    }
+
+    public ProductPageCacheStatistics getPageCacheStatistics() {
+        return productPageCache.getStatistics();
+    }
+
+    /**
+     * Locks a product whose guarded update matched no row, and tells why: 404 when it is missing, 412 unless it
+     * still has an entity tag listed in {@code ifMatch} and has stock shards, which that update leaves alone.
+     */
+    private Product findProductForUpdate(Long id, String ifMatch) {
+        Product product = productRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        ETags.checkIfMatch(ifMatch, eTagOf(product));
+        if (product.getStockShards() == 0) {
+            throw ETags.preconditionFailed();
+        }
+        return product;
+    }
+
+    /**
+     * The condition holding while the product has one of the entity tags listed in {@code ifMatch}; its values
+     * are added to {@code args}. A tag not built by {@link #eTagOf(Product)} matches nothing.
+     */
+    private static String eTagCondition(String ifMatch, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        for (List<String> parts : ETags.parse(ifMatch)) {
+            try {
+                if (parts.size() == 2) {
+                    Object[] values = {Long.parseLong(parts.get(0)), Integer.parseInt(parts.get(1))};
+                    conditions.add(MATCHES_ETAG);
+                    Collections.addAll(args, values);
+                }
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        return conditions.isEmpty() ? "1 = 0" : "(" + String.join(" OR ", conditions) + ")";
+    }
+
+    private void evictFromLedger(Long id) {
+        if (stockLedger != null) {
+            stockLedger.evict(id);
+        }
+    }
+
+    private void resetInLedger(Long id) {
+        if (stockLedger != null) {
+            stockLedger.reset(id);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.arturoglezc.ecommerce2.product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Splits the stock of hot products across {@link ProductStockShard} rows so concurrent checkouts
+ * update different rows. A sharded product keeps its total as the product row plus all its shards;
+ * stock given back lands on the product row until the next rebalance.
+ * <p>
+ * Shard writes change the stock of the product without touching its row, so each one evicts the
+ * product from the second-level cache.
+ * <p>
+ * The shard counts of the products seen sharded are kept in memory, so order items for them go straight
+ * to the shards instead of trying the product row first. A count changed by another instance is corrected
+ * the next time the stock is taken across the shards.
+ */
+@Service
+@Transactional
+public class ProductStockShardService {
+
+    public static final int MAX_SHARDS = 64;
+
+    private static final String PRODUCT_NOT_FOUND = "Product not found";
+    private static final String INVALID_SHARD_COUNT = "Shard count must be between 1 and " + MAX_SHARDS;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    /**
+     * The shard count last seen for a product, 0 when it is not known to be sharded.
+     */
+    public int knownShardCount(Long productId) {
+        return shardCounts.getOrDefault(productId, 0);
+    }
+
+    public void remember(Product product) {
+        if (product.getStockShards() > 0) {
+            shardCounts.put(product.getId(), product.getStockShards());
+        } else {
+            shardCounts.remove(product.getId());
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units from the shards of a product. Starts at a random shard and walks
+     * the others; if no single shard can serve the quantity, locks the product row and all the shards
+     * and takes it across them, row stock included.
+     */
+    public boolean tryTake(Long productId, int shardCount, int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shardIndex = (start + i) % shardCount;
+            if (productStockShardRepository.decrementShard(productId, shardIndex, quantity) > 0) {
+                productCache.evict(productId);
+                return true;
+            }
+        }
+        return takeAcrossShards(productId, quantity);
+    }
+
+    /**
+     * Enables sharding for a product, or changes its shard count, spreading the whole stock evenly
+     * across {@code shardCount} shards.
+     */
+    public Product rebalance(Long productId, int shardCount) {
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_SHARD_COUNT);
+        }
+        Product product = findProductForUpdate(productId);
+        List<ProductStockShard> shards = productStockShardRepository.findByProductIdForUpdate(productId);
+
+        return distribute(product, shards, product.getBaseStock() + sum(shards), shardCount);
+    }
+
+    /**
+     * Overwrites the total stock of a sharded product, spreading it across its current shards.
+     */
+    public Product replaceStock(Long productId, int stock) {
+        Product product = findProductForUpdate(productId);
+        List<ProductStockShard> shards = productStockShardRepository.findByProductIdForUpdate(productId);
+
+        return distribute(product, shards, stock, product.getStockShards());
+    }
+
+    /**
+     * Folds every shard back into the product row and turns sharding off.
+     */
+    public Product disableSharding(Long productId) {
+        Product product = findProductForUpdate(productId);
+        List<ProductStockShard> shards = productStockShardRepository.findByProductIdForUpdate(productId);
+
+        product.setStock(product.getBaseStock() + sum(shards));
+        product.setStockShards(0);
+        productStockShardRepository.deleteAll(shards);
+        remember(product);
+        return reload(product);
+    }
+
+    public List<ProductStockShard> getShards(Long productId) {
+        return productStockShardRepository.findByProductIdOrderByShardIndex(productId);
+    }
+
+    public void deleteShards(Long productId) {
+        productStockShardRepository.deleteByProductId(productId);
+        shardCounts.remove(productId);
+        productCache.evict(productId);
+    }
+
+    /**
+     * Takes {@code quantity} units from the product row, where returned stock lands, and then from the shards,
+     * with the row and every shard locked.
+     */
+    private boolean takeAcrossShards(Long productId, int quantity) {
+        Product product = findProductForUpdate(productId);
+        remember(product);
+        List<ProductStockShard> shards = productStockShardRepository.findByProductIdForUpdate(productId);
+        if (product.getBaseStock() + sum(shards) < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        int takenFromRow = Math.min(remaining, Math.max(product.getBaseStock(), 0));
+        product.setStock(product.getBaseStock() - takenFromRow);
+        remaining -= takenFromRow;
+        for (ProductStockShard shard : shards) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(remaining, shard.getStock());
+            shard.setStock(shard.getStock() - taken);
+            remaining -= taken;
+        }
+        entityManager.flush();
+        productCache.evict(productId);
+        return true;
+    }
+
+    private Product distribute(Product product, List<ProductStockShard> shards, int total, int shardCount) {
+        for (ProductStockShard shard : shards) {
+            if (shard.getShardIndex() >= shardCount) {
+                productStockShardRepository.delete(shard);
+            }
+        }
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            int shardStock = total / shardCount + (shardIndex < total % shardCount ? 1 : 0);
+            ProductStockShard shard = shardIndex < shards.size() && shards.get(shardIndex).getShardIndex() == shardIndex
+                    ? shards.get(shardIndex)
+                    : new ProductStockShard(product.getId(), shardIndex, 0);
+            shard.setStock(shardStock);
+            productStockShardRepository.save(shard);
+        }
+
+        product.setStock(0);
+        product.setStockShards(shardCount);
+        remember(product);
+        return reload(product);
+    }
+
+    private Product findProductForUpdate(Long productId) {
+        return productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_NOT_FOUND));
+    }
+
+    private Product reload(Product product) {
+        entityManager.flush();
+        productCache.evict(product.getId());
+        entityManager.refresh(product);
+        return product;
+    }
+
+    private static int sum(List<ProductStockShard> shards) {
+        return shards.stream().mapToInt(ProductStockShard::getStock).sum();
+    }
+}
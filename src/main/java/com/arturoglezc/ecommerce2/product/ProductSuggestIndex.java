@@ -0,0 +1,364 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory typeahead index of product names. Names are normalized (case, accents and punctuation folded) and
+ * split into tokens; a sorted map from token to the sorted ids of the products containing it answers a token
+ * prefix with one range scan. Every query token must prefix some token of a name for the product to match.
+ *
+ * <p>Built at startup and kept up to date by the product writes once they commit. Stock moves with every
+ * order, so the in-stock flag is refreshed from the database every {@code products.suggest.stock-refresh-interval-ms}
+ * instead. Writers are serialized; readers never lock and see each posting list either before or after a change.
+ */
+@Component
+public class ProductSuggestIndex implements ApplicationRunner {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final long[] NO_IDS = new long[0];
+    private static final int EXACT_NAME = 3;
+    private static final int NAME_PREFIX = 2;
+    private static final int WHOLE_TOKENS = 1;
+    private static final int TOKEN_PREFIXES = 0;
+    private static final int OBJECT_BYTES = 16;
+    private static final int REFERENCE_BYTES = 8;
+    private static final int MAP_ENTRY_BYTES = 48;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::quality)
+            .thenComparing(match -> match.entry().inStock())
+            .thenComparingInt(match -> -match.entry().name().length())
+            .thenComparingLong(match -> -match.entry().id());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private volatile Index index = new Index();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    /**
+     * Up to {@code limit} products whose name matches {@code query}: whole name first, then names starting with
+     * the query, then names containing every query word, then names with words starting with every query word.
+     * Within each group in-stock products come first, then shorter names.
+     */
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        Index current = index;
+        String normalizedQuery = normalize(query);
+        String[] queryTokens = tokenize(normalizedQuery);
+        if (queryTokens.length == 0) {
+            return List.of();
+        }
+        long[] candidates = null;
+        for (String token : queryTokens) {
+            long[] ids = current.idsWithPrefix(token);
+            candidates = candidates == null ? ids : intersect(candidates, ids);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+        }
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, RANKING);
+        for (long id : candidates) {
+            Entry entry = current.entries.get(id);
+            if (entry != null) {
+                top.add(new Match(entry, quality(entry, normalizedQuery, queryTokens)));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        List<ProductSuggestion> suggestions = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Entry entry = top.poll().entry();
+            suggestions.add(new ProductSuggestion(entry.id(), entry.name(), entry.inStock()));
+        }
+        return suggestions.reversed();
+    }
+
+    /**
+     * Indexes a created or updated product once the current transaction commits, or right away outside one.
+     */
+    public void put(Product product) {
+        Entry entry = Entry.of(product.getId(), product.getName(), product.getStock() != null && product.getStock() > 0);
+        afterCommit(() -> putNow(entry));
+    }
+
+    /**
+     * Indexes a patched product once the current transaction commits, or right away outside one. A
+     * {@code null} name or stock keeps what the index already has for the product.
+     */
+    public void patch(Long productId, String name, Integer stock) {
+        if (name != null || stock != null) {
+            afterCommit(() -> patchNow(productId, name, stock));
+        }
+    }
+
+    /**
+     * Drops a deleted product once the current transaction commits, or right away outside one.
+     */
+    public void remove(Long productId) {
+        afterCommit(() -> removeNow(productId));
+    }
+
+    /**
+     * Replaces the index with one built from every product in the database.
+     */
+    public synchronized ProductSuggestIndexStatistics rebuild() {
+        Index rebuilt = new Index();
+        Map<String, Set<Long>> postings = new HashMap<>();
+        for (Source source : productRepository.findSuggestSources()) {
+            Entry entry = Entry.of(source.id(), source.name(), source.inStock());
+            rebuilt.entries.put(entry.id(), entry);
+            for (String token : entry.tokens()) {
+                postings.computeIfAbsent(token, key -> new TreeSet<>()).add(entry.id());
+            }
+        }
+        postings.forEach((token, ids) -> rebuilt.postings.put(token, ids.stream().mapToLong(Long::longValue).toArray()));
+        index = rebuilt;
+        return getStatistics();
+    }
+
+    /**
+     * Sets the in-stock flag of every indexed product from the stock currently in the database.
+     */
+    @Scheduled(fixedDelayString = "${products.suggest.stock-refresh-interval-ms:5000}",
+            initialDelayString = "${products.suggest.stock-refresh-interval-ms:5000}")
+    public synchronized void refreshStock() {
+        Set<Long> outOfStock = new HashSet<>(productRepository.findOutOfStockIds());
+        Map<Long, Entry> entries = index.entries;
+        for (Entry entry : entries.values()) {
+            boolean inStock = !outOfStock.contains(entry.id());
+            if (entry.inStock() != inStock) {
+                entries.replace(entry.id(), entry, entry.withInStock(inStock));
+            }
+        }
+    }
+
+    public ProductSuggestIndexStatistics getStatistics() {
+        Index current = index;
+        long postings = 0;
+        long bytes = 0;
+        for (Map.Entry<String, long[]> posting : current.postings.entrySet()) {
+            postings += posting.getValue().length;
+            bytes += MAP_ENTRY_BYTES + stringBytes(posting.getKey()) + OBJECT_BYTES + 8L * posting.getValue().length;
+        }
+        for (Entry entry : current.entries.values()) {
+            bytes += MAP_ENTRY_BYTES + OBJECT_BYTES + stringBytes(entry.name()) + stringBytes(entry.normalizedName())
+                    + OBJECT_BYTES + (long) REFERENCE_BYTES * entry.tokens().length;
+        }
+        return new ProductSuggestIndexStatistics(current.entries.size(), current.postings.size(), postings, bytes);
+    }
+
+    private synchronized void putNow(Entry entry) {
+        Index current = index;
+        Entry previous = current.entries.put(entry.id(), entry);
+        if (previous != null) {
+            for (String token : previous.tokens()) {
+                if (Arrays.binarySearch(entry.tokens(), token) < 0) {
+                    current.removeId(token, entry.id());
+                }
+            }
+        }
+        for (String token : entry.tokens()) {
+            current.addId(token, entry.id());
+        }
+    }
+
+    private synchronized void patchNow(Long productId, String name, Integer stock) {
+        Entry previous = index.entries.get(productId);
+        String newName = name != null ? name : previous != null ? previous.name() : null;
+        if (newName != null) {
+            boolean inStock = stock != null ? stock > 0 : previous == null || previous.inStock();
+            putNow(Entry.of(productId, newName, inStock));
+        }
+    }
+
+    private synchronized void removeNow(Long productId) {
+        Index current = index;
+        Entry previous = current.entries.remove(productId);
+        if (previous != null) {
+            for (String token : previous.tokens()) {
+                current.removeId(token, productId);
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static int quality(Entry entry, String normalizedQuery, String[] queryTokens) {
+        if (entry.normalizedName().equals(normalizedQuery)) {
+            return EXACT_NAME;
+        }
+        if (entry.normalizedName().startsWith(normalizedQuery)) {
+            return NAME_PREFIX;
+        }
+        for (String token : queryTokens) {
+            if (Arrays.binarySearch(entry.tokens(), token) < 0) {
+                return TOKEN_PREFIXES;
+            }
+        }
+        return WHOLE_TOKENS;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String[] tokenize(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long stringBytes(String value) {
+        return OBJECT_BYTES * 2 + value.length();
+    }
+
+    /**
+     * The two maps that are swapped together on a rebuild. Posting arrays are sorted and never changed in place.
+     */
+    private static final class Index {
+
+        final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, long[]> postings = new ConcurrentSkipListMap<>();
+
+        long[] idsWithPrefix(String prefix) {
+            NavigableMap<String, long[]> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            if (range.isEmpty()) {
+                return NO_IDS;
+            }
+            if (range.size() == 1) {
+                return range.firstEntry().getValue();
+            }
+            return merge(range.values());
+        }
+
+        void addId(String token, long id) {
+            long[] ids = postings.getOrDefault(token, NO_IDS);
+            int position = Arrays.binarySearch(ids, id);
+            if (position < 0) {
+                int insertion = -position - 1;
+                long[] updated = new long[ids.length + 1];
+                System.arraycopy(ids, 0, updated, 0, insertion);
+                updated[insertion] = id;
+                System.arraycopy(ids, insertion, updated, insertion + 1, ids.length - insertion);
+                postings.put(token, updated);
+            }
+        }
+
+        void removeId(String token, long id) {
+            long[] ids = postings.get(token);
+            int position = ids == null ? -1 : Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                if (ids.length == 1) {
+                    postings.remove(token);
+                    return;
+                }
+                long[] updated = new long[ids.length - 1];
+                System.arraycopy(ids, 0, updated, 0, position);
+                System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+                postings.put(token, updated);
+            }
+        }
+
+        private static long[] merge(Collection<long[]> lists) {
+            int total = 0;
+            for (long[] ids : lists) {
+                total += ids.length;
+            }
+            long[] merged = new long[total];
+            int size = 0;
+            for (long[] ids : lists) {
+                System.arraycopy(ids, 0, merged, size, ids.length);
+                size += ids.length;
+            }
+            Arrays.sort(merged);
+            int distinct = 0;
+            for (int i = 0; i < merged.length; i++) {
+                if (i == 0 || merged[i] != merged[i - 1]) {
+                    merged[distinct++] = merged[i];
+                }
+            }
+            return Arrays.copyOf(merged, distinct);
+        }
+    }
+
+    private record Entry(long id, String name, String normalizedName, String[] tokens, boolean inStock) {
+
+        static Entry of(long id, String name, boolean inStock) {
+            String normalizedName = normalize(name);
+            String[] tokens = Arrays.stream(tokenize(normalizedName)).distinct().sorted().toArray(String[]::new);
+            return new Entry(id, name, normalizedName, tokens, inStock);
+        }
+
+        Entry withInStock(boolean inStock) {
+            return new Entry(id, name, normalizedName, tokens, inStock);
+        }
+    }
+
+    private record Match(Entry entry, int quality) {
+    }
+
+    /**
+     * A product as read for a rebuild; in stock when its row or any of its stock shards holds stock.
+     */
+    public record Source(Long id, String name, boolean inStock) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * Size of the product name index: products and distinct tokens indexed, product ids held across all token
+ * postings, and an estimate of the heap they take.
+ */
+public record ProductSuggestIndexStatistics(long products, long tokens, long postings, long estimatedBytes) {
+}
@@ -0,0 +1,7 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * A product offered for a typeahead query.
+ */
+public record ProductSuggestion(Long id, String name, boolean inStock) {
+}
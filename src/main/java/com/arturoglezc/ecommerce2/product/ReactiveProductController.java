@@ -0,0 +1,42 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive reads of the catalog. The servlet thread is released as soon as the handler returns and the response
+ * is written as the rows arrive.
+ */
+@RestController
+@RequestMapping("/api/reactive/products")
+public class ReactiveProductController {
+
+    @Autowired
+    private ReactiveProductService reactiveProductService;
+
+    @GetMapping
+    public Flux<CatalogProduct> getProducts(@RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "10") int size) {
+        return reactiveProductService.getProducts(page, size);
+    }
+
+    /**
+     * The whole catalog as newline-delimited JSON, written one product at a time as the client reads it.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CatalogProduct> streamProducts() {
+        return reactiveProductService.streamProducts();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<CatalogProduct> getProductById(@PathVariable Long id) {
+        return reactiveProductService.getProductById(id);
+    }
+}
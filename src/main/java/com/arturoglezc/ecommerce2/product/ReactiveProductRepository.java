@@ -0,0 +1,29 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the product table over R2DBC, next to {@link ProductRepository}. Every query adds the
+ * stock of the shards of sharded products, as {@link Product#getStock()} does.
+ */
+@Repository
+public interface ReactiveProductRepository extends R2dbcRepository<CatalogProduct, Long> {
+
+    String SELECT_PRODUCT = "SELECT p.id, p.name, p.price, p.stock + CASE WHEN p.stock_shards > 0 THEN " +
+            "(SELECT COALESCE(SUM(s.stock), 0) FROM product_stock_shard s WHERE s.product_id = p.id) ELSE 0 END AS stock, " +
+            "p.stock_shards, p.version FROM product p ";
+
+    @Query(SELECT_PRODUCT + "WHERE p.id = :id")
+    Mono<CatalogProduct> findCatalogProductById(@Param("id") Long id);
+
+    @Query(SELECT_PRODUCT + "ORDER BY p.id LIMIT :limit OFFSET :offset")
+    Flux<CatalogProduct> findPage(@Param("offset") long offset, @Param("limit") int limit);
+
+    @Query(SELECT_PRODUCT + "WHERE p.id > :id ORDER BY p.id LIMIT :limit")
+    Flux<CatalogProduct> findByIdAfter(@Param("id") long id, @Param("limit") int limit);
+}
@@ -0,0 +1,61 @@
+package com.arturoglezc.ecommerce2.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The read side of the catalog over R2DBC: no call blocks a thread while the database works, and no connection
+ * is held between the rows a slow client has not asked for yet.
+ */
+@Service
+public class ReactiveProductService {
+
+    public static final int MAX_PAGE_SIZE = 1_000;
+    public static final int STREAM_CHUNK_SIZE = 500;
+
+    private static final String INVALID_PAGE = "Page must be at least 0 and size between 1 and " + MAX_PAGE_SIZE;
+
+    @Autowired
+    private ReactiveProductRepository reactiveProductRepository;
+
+    public Mono<CatalogProduct> getProductById(Long id) {
+        return reactiveProductRepository.findCatalogProductById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    public Flux<CatalogProduct> getProducts(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_PAGE));
+        }
+        return reactiveProductRepository.findPage((long) page * size, size);
+    }
+
+    /**
+     * The whole catalog in id order, read in keyset chunks of {@link #STREAM_CHUNK_SIZE}. A chunk is only queried
+     * once the last product of the previous one has been requested downstream, so a subscriber that stops
+     * requesting stops the reads too, and at most one chunk per subscriber is held in memory.
+     */
+    public Flux<CatalogProduct> streamProducts() {
+        return streamProductsAfter(Long.MIN_VALUE);
+    }
+
+    private Flux<CatalogProduct> streamProductsAfter(long afterId) {
+        return reactiveProductRepository.findByIdAfter(afterId, STREAM_CHUNK_SIZE)
+                .collectList()
+                .flatMapMany(chunk -> {
+                    Flux<CatalogProduct> products = Flux.fromIterable(chunk);
+                    return chunk.size() < STREAM_CHUNK_SIZE ? products
+                            : products.concatWith(Flux.defer(() -> streamProductsAfter(lastId(chunk))));
+                });
+    }
+
+    private static long lastId(List<CatalogProduct> chunk) {
+        return chunk.getLast().id();
+    }
+}
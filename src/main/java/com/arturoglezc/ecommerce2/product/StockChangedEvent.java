@@ -0,0 +1,7 @@
+package com.arturoglezc.ecommerce2.product;
+
+/**
+ * Outbox payload of a change in the stock of a product: units taken are negative, units returned positive.
+ */
+public record StockChangedEvent(int delta) {
+}
@@ -0,0 +1,4 @@
+-- Optimistic locking versions, which also back the ETags of products, orders and order items.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+ALTER TABLE order_item ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
@@ -0,0 +1,10 @@
+-- Stock of hot products split across shard rows; stock_shards is 0 for products whose stock is all on the row.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS stock_shards INTEGER DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS product_stock_shard (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    shard_index INTEGER NOT NULL,
+    stock INTEGER NOT NULL,
+    CONSTRAINT uk_product_stock_shard_product_shard UNIQUE (product_id, shard_index)
+);
@@ -0,0 +1,6 @@
+-- Denormalized item count and total amount of each order. Orders that already exist start at 0; fill them in
+-- once with orders.totals.backfill=true, which works through the table in small transactions.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS item_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS total_amount DOUBLE PRECISION DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_orders_total_amount ON orders (total_amount, id);
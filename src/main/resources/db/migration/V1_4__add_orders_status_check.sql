@@ -0,0 +1,2 @@
+-- The order statuses, also checked by the database; bulk status transitions write them with plain SQL.
+ALTER TABLE orders ADD CONSTRAINT ck_orders_status CHECK (status IN ('PENDING', 'PAID', 'SHIPPED', 'DELIVERED', 'CANCELLED'));
@@ -0,0 +1,27 @@
+-- The schema the first release created with ddl-auto=update. Databases created that way are baselined at this
+-- version (spring.flyway.baseline-on-migrate) and start migrating from V1_1; the columns and tables added since
+-- come in the migrations that follow, which skip whatever a later ddl-auto=update already created.
+
+CREATE TABLE product (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    price DOUBLE PRECISION NOT NULL,
+    stock INTEGER NOT NULL
+);
+
+CREATE TABLE orders (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    customer_name VARCHAR(100) NOT NULL,
+    order_date TIMESTAMP(6) NOT NULL,
+    status VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE order_item (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    unit_price DOUBLE PRECISION NOT NULL,
+    CONSTRAINT fk_order_item_order FOREIGN KEY (order_id) REFERENCES orders (id),
+    CONSTRAINT fk_order_item_product FOREIGN KEY (product_id) REFERENCES product (id)
+);
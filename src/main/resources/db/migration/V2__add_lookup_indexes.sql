@@ -0,0 +1,8 @@
+-- Items of an order (findByOrderId, order details and export) and of a product (findByProductId, and
+-- existsByProductId on every product delete). PostgreSQL does not index foreign keys by itself.
+CREATE INDEX idx_order_item_order_id ON order_item (order_id);
+CREATE INDEX idx_order_item_product_id ON order_item (product_id);
+
+-- Orders of a status in date order, and the orderDate cursor of the order listing.
+CREATE INDEX idx_orders_status_order_date ON orders (status, order_date);
+CREATE INDEX idx_orders_order_date ON orders (order_date, id);
@@ -0,0 +1,8 @@
+-- Events appended in the transaction of the change they describe and deleted once the relay has published them.
+CREATE TABLE outbox_event (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type VARCHAR(30) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload VARCHAR(100000) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
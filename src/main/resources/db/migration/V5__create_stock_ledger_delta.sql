@@ -0,0 +1,9 @@
+-- Stock changes admitted by the in-memory stock ledger, written in the transaction that makes them and applied
+-- to product.stock in batches. Until then the available stock of a product is its stock plus its deltas here.
+CREATE TABLE stock_ledger_delta (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    delta INTEGER NOT NULL
+);
+
+CREATE INDEX idx_stock_ledger_delta_product_id ON stock_ledger_delta (product_id);
@@ -0,0 +1,68 @@
+package com.arturoglezc.ecommerce2;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaMigrationTest {
+
+    private static final String COLUMNS = "SELECT table_name, column_name, data_type FROM information_schema.columns "
+            + "WHERE table_schema = 'PUBLIC' AND table_name <> 'flyway_schema_history' ORDER BY table_name, column_name";
+
+    /**
+     * The tables the first release created with ddl-auto=update, as Hibernate generated them.
+     */
+    private static final String[] FIRST_RELEASE_SCHEMA = {
+            "CREATE TABLE product (id BIGINT GENERATED BY DEFAULT AS IDENTITY, name VARCHAR(100) NOT NULL, "
+                    + "price FLOAT(53) NOT NULL, stock INTEGER NOT NULL, PRIMARY KEY (id))",
+            "CREATE TABLE orders (id BIGINT GENERATED BY DEFAULT AS IDENTITY, customer_name VARCHAR(100) NOT NULL, "
+                    + "order_date TIMESTAMP(6) NOT NULL, status VARCHAR(255) NOT NULL CHECK (status IN "
+                    + "('PENDING','PAID','SHIPPED','DELIVERED','CANCELLED')), PRIMARY KEY (id))",
+            "CREATE TABLE order_item (id BIGINT GENERATED BY DEFAULT AS IDENTITY, order_id BIGINT NOT NULL, "
+                    + "product_id BIGINT NOT NULL, quantity INTEGER NOT NULL, unit_price FLOAT(53) NOT NULL, "
+                    + "PRIMARY KEY (id), FOREIGN KEY (order_id) REFERENCES orders, "
+                    + "FOREIGN KEY (product_id) REFERENCES product)",
+            "INSERT INTO product (name, price, stock) VALUES ('Laptop', 1200, 10)",
+            "INSERT INTO orders (customer_name, order_date, status) VALUES ('John Doe', CURRENT_TIMESTAMP, 'PENDING')"
+    };
+
+    @Test
+    void testMigrate_ShouldBringFirstReleaseDatabaseToCurrentSchema() {
+        JdbcTemplate fresh = migrate(dataSource("fresh"));
+
+        DataSource legacyDataSource = dataSource("legacy");
+        JdbcTemplate legacy = new JdbcTemplate(legacyDataSource);
+        for (String statement : FIRST_RELEASE_SCHEMA) {
+            legacy.execute(statement);
+        }
+        migrate(legacyDataSource);
+
+        List<Map<String, Object>> freshColumns = fresh.queryForList(COLUMNS);
+        assertThat(freshColumns).isNotEmpty();
+        assertThat(legacy.queryForList(COLUMNS)).isEqualTo(freshColumns);
+        assertThat(legacy.queryForObject("SELECT version + stock_shards FROM product", Long.class)).isZero();
+        assertThat(legacy.queryForObject("SELECT item_count FROM orders", Integer.class)).isZero();
+    }
+
+    private static DataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static JdbcTemplate migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", "classpath:db/vendor/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        return new JdbcTemplate(dataSource);
+    }
+}
@@ -0,0 +1,219 @@
+package com.arturoglezc.ecommerce2.datasource;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.product.ProductCache;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two embedded H2 databases stand in for the primary and a replica; a third replica URL names a database that
+ * does not exist, so it is always down. Rows written to only one of them show where each read went.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReplicaRoutingTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:testdb";
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+    private static final String DOWN_REPLICA_URL = "jdbc:h2:mem:replica-down;IFEXISTS=TRUE";
+    private static final long REPLICA_ONLY_PRODUCT_ID = 900_000_001L;
+    private static final JdbcTemplate replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @DynamicPropertySource
+    static void replicas(DynamicPropertyRegistry registry) {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration", "classpath:db/vendor/h2")
+                .load()
+                .migrate();
+        registry.add("datasource.replica.urls", () -> REPLICA_URL + "," + DOWN_REPLICA_URL);
+        registry.add("datasource.replica.connection-timeout", () -> "250ms");
+        registry.add("datasource.replica.read-your-writes-window", () -> "1m");
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAllInBatch();
+        replicaJdbcTemplate.update("DELETE FROM product");
+        jdbcTemplate.update("DELETE FROM product WHERE id = ?", REPLICA_ONLY_PRODUCT_ID);
+        productCache.evict(REPLICA_ONLY_PRODUCT_ID);
+        productPageCache.invalidate();
+    }
+
+    @Test
+    void testReadOnlyTransactions_ShouldReadFromHealthyReplicas() throws Exception {
+        replicaJdbcTemplate.update("INSERT INTO product (id, name, price, stock) VALUES (?, ?, ?, ?)",
+                REPLICA_ONLY_PRODUCT_ID, PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK);
+        Order primaryOnly = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+
+        replicaDataSource.checkReplicas();
+        assertThat(replicaDataSource.getHealthyReplicas()).containsExactly("replica-1");
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/products").param("after", "").param("size", "100"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[?(@.id == " + REPLICA_ONLY_PRODUCT_ID + ")].name").value(PRODUCT_NAME));
+        }
+        mockMvc.perform(get("/api/orders/{id}", primaryOnly.getId())).andExpect(status().isNotFound());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE id = ?", Long.class,
+                primaryOnly.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testCatalogReads_ShouldFillCachesOnlyFromPrimary() throws Exception {
+        jdbcTemplate.update("INSERT INTO product (id, name, price, stock) VALUES (?, ?, ?, ?)",
+                REPLICA_ONLY_PRODUCT_ID, PRODUCT_NAME_ALT, PRODUCT_PRICE, PRODUCT_STOCK);
+        replicaJdbcTemplate.update("INSERT INTO product (id, name, price, stock) VALUES (?, ?, ?, ?)",
+                REPLICA_ONLY_PRODUCT_ID, PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK);
+        replicaDataSource.checkReplicas();
+        productPageCache.invalidate();
+
+        mockMvc.perform(get("/api/products/{id}", REPLICA_ONLY_PRODUCT_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(PRODUCT_NAME));
+        mockMvc.perform(get("/api/products").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[?(@.id == " + REPLICA_ONLY_PRODUCT_ID + ")].name").value(PRODUCT_NAME));
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[?(@.id == " + REPLICA_ONLY_PRODUCT_ID + ")].name").value(PRODUCT_NAME));
+        assertThat(productCache.contains(REPLICA_ONLY_PRODUCT_ID)).isFalse();
+        assertThat(productPageCache.getStatistics().pages()).isZero();
+
+        Cookie lastWrite = new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis()));
+        mockMvc.perform(get("/api/products/{id}", REPLICA_ONLY_PRODUCT_ID).cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(PRODUCT_NAME_ALT));
+        mockMvc.perform(get("/api/products").param("size", "100").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[?(@.id == " + REPLICA_ONLY_PRODUCT_ID + ")].name").value(PRODUCT_NAME_ALT));
+        assertThat(productCache.contains(REPLICA_ONLY_PRODUCT_ID)).isTrue();
+        assertThat(productPageCache.getStatistics().pages()).isEqualTo(1);
+    }
+
+    @Test
+    void testReadYourWrites_ShouldPinWriterToPrimary() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING))))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE))
+                .andReturn().getResponse();
+        long id = objectMapper.readTree(response.getContentAsString()).get("id").asLong();
+        Cookie lastWrite = response.getCookie(ReadYourWritesFilter.COOKIE);
+
+        mockMvc.perform(get("/api/orders/{id}", id).cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value(ORDER_CUSTOMER_NAME));
+        mockMvc.perform(get("/api/orders/{id}", id))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/orders/{id}", id).cookie(new Cookie(ReadYourWritesFilter.COOKIE,
+                        String.valueOf(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis()))))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/orders/{id}", id).cookie(new Cookie(ReadYourWritesFilter.COOKIE, "forever")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetConnection_ShouldFallBackToPrimaryWhenNoReplicaIsHealthy() throws Exception {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("down", new DriverManagerDataSource(DOWN_REPLICA_URL, "sa", ""));
+        ReplicaDataSource dataSource = new ReplicaDataSource(primaryDataSource, replicas, new SimpleMeterRegistry());
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).isEqualTo(PRIMARY_URL);
+        }
+        assertThat(dataSource.getHealthyReplicas()).isEmpty();
+
+        replicaDataSource.pinToPrimary();
+        try (Connection connection = replicaDataSource.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).isEqualTo(PRIMARY_URL);
+        } finally {
+            replicaDataSource.unpin();
+        }
+        try (Connection connection = replicaDataSource.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).isEqualTo("jdbc:h2:mem:replica");
+        }
+    }
+
+    @Test
+    void testGetConnectionWithCredentials_ShouldBeRoutedLikeGetConnection() throws Exception {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("down", new DriverManagerDataSource(DOWN_REPLICA_URL));
+        replicas.put("replica", new DriverManagerDataSource(REPLICA_URL));
+        ReplicaDataSource dataSource = new ReplicaDataSource(new DriverManagerDataSource(PRIMARY_URL), replicas,
+                new SimpleMeterRegistry());
+
+        try (Connection connection = dataSource.getConnection("sa", "")) {
+            assertThat(connection.getMetaData().getURL()).isEqualTo("jdbc:h2:mem:replica");
+        }
+        assertThat(dataSource.getHealthyReplicas()).containsExactly("replica");
+
+        dataSource.pinToPrimary();
+        try (Connection connection = dataSource.getConnection("sa", "")) {
+            assertThat(connection.getMetaData().getURL()).isEqualTo(PRIMARY_URL);
+        } finally {
+            dataSource.unpin();
+        }
+    }
+}
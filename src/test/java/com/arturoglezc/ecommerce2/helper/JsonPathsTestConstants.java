@@ -8,10 +8,15 @@ public class JsonPathsTestConstants {
     public static final String TOTAL_PAGES_JSON_PATH = "$.totalPages";
     public static final String PAGE_NUMBER_JSON_PATH = "$.number";
 
+    //Cursor pagination
+    public static final String HAS_NEXT_JSON_PATH = "$.hasNext";
+    public static final String NEXT_CURSOR_JSON_PATH = "$.next";
+
     //Product
     public static final String PRODUCT_NAME_JSON_PATH = "$.name";
     public static final String PRODUCT_PRICE_JSON_PATH = "$.price";
     public static final String PRODUCT_STOCK_JSON_PATH = "$.stock";
+    public static final String PRODUCT_STOCK_SHARDS_JSON_PATH = "$.stockShards";
     public static final String PRODUCT_NAME_FIRST_ELEMENT_JSON_PATH = "$.content[0].name";
     public static final String PRODUCT_NAME_SECOND_ELEMENT_JSON_PATH = "$.content[1].name";
 
@@ -25,6 +30,6 @@ public class JsonPathsTestConstants {
     //OrderItem
     public static final String ORDER_ITEM_QUANTITY_JSON_PATH = "$.quantity";
     public static final String ORDER_ITEM_UNIT_PRICE_JSON_PATH = "$.unitPrice";
-    public static final String ORDER_ITEM_ORDER_CUSTOMER_NAME_JSON_PATH = "$.order.customerName";
-    public static final String ORDER_ITEM_PRODUCT_NAME_JSON_PATH = "$.product.name";
+    public static final String ORDER_ITEM_ORDER_CUSTOMER_NAME_JSON_PATH = "$.customerName";
+    public static final String ORDER_ITEM_PRODUCT_NAME_JSON_PATH = "$.productName";
 }
\ No newline at end of file
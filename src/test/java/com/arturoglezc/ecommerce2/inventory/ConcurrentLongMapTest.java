@@ -0,0 +1,73 @@
+package com.arturoglezc.ecommerce2.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentLongMapTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void testPutAndRemove_ShouldKeepEveryOtherKeyReachable() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        for (long key = 0; key < KEYS; key++) {
+            map.put(key * 64, "value-" + key);
+        }
+
+        for (long key = 0; key < KEYS; key += 2) {
+            assertThat(map.remove(key * 64, "value-" + key)).isFalse();
+            assertThat(map.remove(key * 64, map.get(key * 64))).isTrue();
+        }
+
+        assertThat(map.size()).isEqualTo(KEYS / 2);
+        for (long key = 0; key < KEYS; key++) {
+            assertThat(map.get(key * 64)).isEqualTo(key % 2 == 0 ? null : "value-" + key);
+        }
+    }
+
+    @Test
+    void testComputeIfAbsent_ShouldCreateOneValuePerKeyAcrossThreads() throws Exception {
+        ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Object>>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    List<Object> values = new ArrayList<>();
+                    for (long key = 0; key < KEYS; key++) {
+                        values.add(map.computeIfAbsent(key, id -> new Object()));
+                    }
+                    return values;
+                }));
+            }
+            List<Object> first = results.getFirst().get();
+            for (Future<List<Object>> result : results) {
+                assertThat(result.get()).containsExactlyElementsOf(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(map.size()).isEqualTo(KEYS);
+    }
+
+    @Test
+    void testClear_ShouldDropEveryKey() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        map.put(-1L, "negative");
+        map.put(Long.MAX_VALUE, "max");
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(-1L)).isNull();
+        assertThat(map.get(Long.MAX_VALUE)).isNull();
+    }
+}
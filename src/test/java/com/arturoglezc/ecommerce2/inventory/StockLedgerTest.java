@@ -0,0 +1,287 @@
+package com.arturoglezc.ecommerce2.inventory;
+
+import com.arturoglezc.ecommerce2.etag.ETags;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.orderitem.OrderItemTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "inventory.ledger.enabled=true",
+        "inventory.ledger.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+public class StockLedgerTest {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockLedger.flush();
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testTryReserve_ShouldRejectOnceStockIsExhausted() {
+        assertThat(stockLedger.tryReserve(product.getId(), PRODUCT_STOCK - 1)).isTrue();
+        assertThat(stockLedger.tryReserve(product.getId(), 2)).isFalse();
+        assertThat(stockLedger.tryReserve(product.getId(), 1)).isTrue();
+        assertThat(stockLedger.getAvailable(product.getId())).isZero();
+    }
+
+    @Test
+    void testTryReserve_ShouldRejectUnknownProduct() {
+        assertThat(stockLedger.tryReserve(999_999L, 1)).isFalse();
+    }
+
+    @Test
+    void testEvictAndReset_ShouldNotAddCounterForUnknownProduct() {
+        int size = stockLedger.size();
+
+        stockLedger.evict(999_999L);
+        stockLedger.reset(999_999L);
+
+        assertThat(stockLedger.size()).isEqualTo(size);
+    }
+
+    @Test
+    void testDeleteProduct_ShouldDropItsCounter() {
+        stockLedger.tryReserve(product.getId(), 1);
+        int size = stockLedger.size();
+
+        productService.deleteProduct(product.getId());
+
+        assertThat(stockLedger.size()).isEqualTo(size - 1);
+        assertThat(stockLedger.tracks(product.getId())).isFalse();
+        assertThat(stockLedger.size()).isEqualTo(size - 1);
+    }
+
+    @Test
+    void testFlush_ShouldWriteCommittedDeltasBehind() {
+        stockLedger.tryReserve(product.getId(), 3);
+        stockLedger.release(product.getId(), 1);
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+
+        stockLedger.flush();
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK - 2);
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldGiveStockBackWhenTransactionRollsBack() {
+        Order missingOrder = new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS);
+        missingOrder.setId(999_999L);
+
+        assertThrows(ResponseStatusException.class, () -> orderItemService.createOrderItem(
+                new OrderItem(missingOrder, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE)));
+
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK);
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldRejectWhenLedgerIsExhausted() {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        orderItemService.createOrderItem(new OrderItem(order, product, PRODUCT_STOCK, ORDER_ITEM_UNIT_PRICE));
+
+        assertThrows(ResponseStatusException.class, () -> orderItemService.createOrderItem(
+                new OrderItem(order, product, 1, ORDER_ITEM_UNIT_PRICE)));
+
+        stockLedger.flush();
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isZero();
+    }
+
+    @Test
+    void testRebuild_ShouldReloadStockFromTable() {
+        stockLedger.tryReserve(product.getId(), 1);
+        stockLedger.flush();
+
+        stockLedger.rebuild();
+
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK - 1);
+    }
+
+    @Test
+    void testRebuild_ShouldKeepReservationsThatWereNotFlushed() {
+        stockLedger.tryReserve(product.getId(), 3);
+
+        stockLedger.rebuild();
+
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK - 3);
+        assertThat(stockLedger.tryReserve(product.getId(), PRODUCT_STOCK - 2)).isFalse();
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+    }
+
+    @Test
+    void testFlush_ShouldApplyEachDeltaOnce() {
+        stockLedger.tryReserve(product.getId(), 2);
+
+        stockLedger.evict(product.getId());
+        stockLedger.flush();
+        stockLedger.flush();
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK - 2);
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK - 2);
+    }
+
+    @Test
+    void testRelease_ShouldCreditStockOnlyOnceCommitted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            stockLedger.release(product.getId(), 2);
+            assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK);
+            status.setRollbackOnly();
+        });
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK);
+
+        transactionTemplate.executeWithoutResult(status -> stockLedger.release(product.getId(), 2));
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK + 2);
+    }
+
+    @Test
+    void testEvict_ShouldWaitForReservationsInFlight() throws Exception {
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> reservation = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                stockLedger.tryReserve(product.getId(), 2);
+                reserved.countDown();
+                await(commit);
+            }));
+            assertThat(reserved.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<?> eviction = executor.submit(() -> stockLedger.evict(product.getId()));
+            Thread.sleep(200);
+            assertThat(eviction.isDone()).isFalse();
+
+            commit.countDown();
+            reservation.get(5, TimeUnit.SECONDS);
+            eviction.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK - 2);
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK - 2);
+    }
+
+    @Test
+    void testUpdateProduct_ShouldHonorIfMatchWhileDeltasAreNotFlushed() {
+        stockLedger.tryReserve(product.getId(), 3);
+        String eTag = eTagOf(productRepository.findById(product.getId()).orElseThrow());
+
+        Product updatedProduct = productService.updateProduct(product.getId(),
+                new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT), eTag);
+
+        assertThat(updatedProduct.getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK_ALT);
+        stockLedger.flush();
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+        assertThrows(ResponseStatusException.class, () -> productService.updateProduct(product.getId(),
+                new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT), eTag));
+    }
+
+    @Test
+    void testPatchProduct_ShouldHonorIfMatchWhileDeltasAreNotFlushed() throws Exception {
+        stockLedger.tryReserve(product.getId(), 3);
+        String eTag = eTagOf(productRepository.findById(product.getId()).orElseThrow());
+
+        productService.patchProduct(product.getId(), objectMapper.readTree("{\"stock\": " + PRODUCT_STOCK_ALT + "}"), eTag);
+
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK_ALT);
+        stockLedger.flush();
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+        assertThrows(ResponseStatusException.class, () -> productService.patchProduct(product.getId(),
+                objectMapper.readTree("{\"stock\": 1}"), eTag));
+    }
+
+    @Test
+    void testShardedProduct_ShouldBeTakenFromShardsInsteadOfLedger() {
+        productService.enableStockSharding(product.getId(), 2);
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        assertThat(stockLedger.tracks(product.getId())).isFalse();
+        assertThat(stockLedger.tryReserve(product.getId(), 1)).isFalse();
+        OrderItem orderItem = orderItemService.createOrderItem(new OrderItem(order, product, 3, ORDER_ITEM_UNIT_PRICE));
+        stockLedger.flush();
+
+        Product sharded = productRepository.findById(product.getId()).orElseThrow();
+        assertThat(sharded.getStock()).isEqualTo(PRODUCT_STOCK - 3);
+        assertThat(stockLedger.getAvailable(product.getId())).isNull();
+
+        orderItemService.deleteOrderItem(orderItem.getId());
+        productService.disableStockSharding(product.getId());
+
+        assertThat(stockLedger.tracks(product.getId())).isTrue();
+        assertThat(stockLedger.getAvailable(product.getId())).isEqualTo(PRODUCT_STOCK);
+    }
+
+    private static String eTagOf(Product product) {
+        return ETags.of(product.getVersion(), product.getStock());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.arturoglezc.ecommerce2.metrics;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+public class MetricsTest {
+
+    private static final String PROMETHEUS_PATH = "/actuator/prometheus";
+    private static final String MISSING_PRODUCT_PATH = "/api/products/{id}";
+    private static final String ORDER_ITEM_PATH = "/api/order-items";
+    private static final long MISSING_PRODUCT_ID = 999_999L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testPrometheusEndpoint_ShouldExposeRequestServiceAndFailureMetrics() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+
+        mockMvc.perform(get(MISSING_PRODUCT_PATH, MISSING_PRODUCT_ID)).andExpect(status().isNotFound());
+        mockMvc.perform(post(ORDER_ITEM_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new OrderItem(order, product, PRODUCT_STOCK + 1, PRODUCT_PRICE))))
+                .andExpect(status().isBadRequest());
+
+        String scrape = mockMvc.perform(get(PROMETHEUS_PATH))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket")
+                .contains("ecommerce_service_seconds_bucket{class=\"com.arturoglezc.ecommerce2.orderitem.OrderItemService\"")
+                .contains("ecommerce_stock_rejections_total{controller=\"OrderItemController\"} 1.0")
+                .contains("ecommerce_lookups_not_found_total{controller=\"ProductController\"} 1.0")
+                .contains("hikaricp_connections_acquire_seconds_bucket")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_entities_loads_total")
+                .contains("products_page_cache_bytes");
+    }
+}
@@ -1,5 +1,10 @@
 package com.arturoglezc.ecommerce2.order;
 
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.pagination.Cursor;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -9,16 +14,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static com.arturoglezc.ecommerce2.helper.JsonPathsTestConstants.*;
 import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -31,6 +42,10 @@ public class OrderControllerTest {
     private static final String ORDER_ID_PATH = "/api/orders/{id}";
     private static final String GET_ALL_ORDERS_PAGING_PATH = "/api/orders?page=0&size=2";
     private static final String CREATE_ORDER_PATH = "/api/orders";
+    private static final String CHECKOUT_PATH = "/api/orders/checkout";
+    private static final String EXPORT_PATH = "/api/orders/export";
+    private static final String ORDER_DETAILS_PATH = "/api/orders/{id}/full";
+    private static final String ORDERS_DETAILS_PATH = "/api/orders/full";
 
     @Autowired
     private MockMvc mockMvc;
@@ -38,6 +53,12 @@ public class OrderControllerTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -50,7 +71,9 @@ public class OrderControllerTest {
 
     @AfterEach
     void tearDown() {
+        orderItemRepository.deleteAll();
         orderRepository.deleteAll();
+        productRepository.deleteAll();
     }
 
     @Test
@@ -128,4 +151,311 @@ public class OrderControllerTest {
         Optional<Order> deletedOrder = orderRepository.findById(order.getId());
         assertTrue(deletedOrder.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCheckout_ShouldCreateOrderWithAllItems() throws Exception {
+        Product laptop = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product keyboard = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+
+        CheckoutRequest checkoutRequest = new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS, List.of(
+                new CheckoutRequest.Item(keyboard.getId(), 3, PRODUCT_PRICE_ALT),
+                new CheckoutRequest.Item(laptop.getId(), 1, PRODUCT_PRICE),
+                new CheckoutRequest.Item(keyboard.getId(), 2, PRODUCT_PRICE_ALT)));
+
+        String response = mockMvc.perform(post(CHECKOUT_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_JSON_PATH).value(ORDER_CUSTOMER_NAME))
+                .andReturn().getResponse().getContentAsString();
+
+        Long orderId = objectMapper.readTree(response).get("id").asLong();
+        assertThat(orderItemRepository.findByOrderId(orderId)).hasSize(3);
+        assertThat(productRepository.findById(laptop.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK - 1);
+        assertThat(productRepository.findById(keyboard.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK_ALT - 5);
+    }
+
+    @Test
+    void testCheckout_ShouldRollBackEverythingWhenOneLineHasNotEnoughStock() throws Exception {
+        Product laptop = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product keyboard = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+
+        CheckoutRequest checkoutRequest = new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS, List.of(
+                new CheckoutRequest.Item(laptop.getId(), 1, PRODUCT_PRICE),
+                new CheckoutRequest.Item(keyboard.getId(), PRODUCT_STOCK_ALT + 1, PRODUCT_PRICE_ALT)));
+
+        mockMvc.perform(post(CHECKOUT_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(orderRepository.count()).isZero();
+        assertThat(productRepository.findById(laptop.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+        assertThat(productRepository.findById(keyboard.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+    }
+
+    @Test
+    void testCheckout_ShouldReturnNotFoundForUnknownProduct() throws Exception {
+        CheckoutRequest checkoutRequest = new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS, List.of(
+                new CheckoutRequest.Item(999_999L, 1, PRODUCT_PRICE)));
+
+        mockMvc.perform(post(CHECKOUT_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isNotFound());
+
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    @Test
+    void testCheckout_ShouldRejectCancelledStatusWithoutTakingStock() throws Exception {
+        Product laptop = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        CheckoutRequest checkoutRequest = new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.CANCELLED,
+                List.of(new CheckoutRequest.Item(laptop.getId(), 1, PRODUCT_PRICE)));
+
+        mockMvc.perform(post(CHECKOUT_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(orderRepository.count()).isZero();
+        assertThat(productRepository.findById(laptop.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+    }
+
+    @Test
+    void testGetOrdersAfter_ShouldWalkAllOrdersByOrderDate() throws Exception {
+        orderRepository.saveAll(Arrays.asList(
+                new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS),
+                new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT),
+                new Order(ORDER_CUSTOMER_NAME_ALT_2, ORDER_DATE_ALT_2, ORDER_STATUS_ALT_2),
+                new Order(ORDER_CUSTOMER_NAME_ALT_3, ORDER_DATE_ALT_3, ORDER_STATUS_ALT_3)
+        ));
+
+        String firstSlice = mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("after", "")
+                        .param("size", "3")
+                        .param("sort", "orderDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(3)))
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_FIRST_ELEMENT_JSON_PATH).value(ORDER_CUSTOMER_NAME_ALT_3))
+                .andExpect(jsonPath(HAS_NEXT_JSON_PATH).value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        String next = objectMapper.readTree(firstSlice).get("next").asText();
+
+        mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("after", next)
+                        .param("size", "3")
+                        .param("sort", "orderDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(1)))
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_FIRST_ELEMENT_JSON_PATH).value(ORDER_CUSTOMER_NAME_ALT_2))
+                .andExpect(jsonPath(HAS_NEXT_JSON_PATH).value(false))
+                .andExpect(jsonPath(NEXT_CURSOR_JSON_PATH).doesNotExist());
+    }
+
+    @Test
+    void testGetOrdersAfter_ShouldRejectCursorOfAnotherSort() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        String slice = mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("after", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(1)))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(objectMapper.readTree(slice).get("content").get(0).get("id").asLong()).isEqualTo(order.getId());
+
+        mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("after", "bm90LWEtY3Vyc29y")
+                        .param("sort", "orderDate"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetOrdersAfter_ShouldRejectCursorWithInvalidOrderDate() throws Exception {
+        String cursor = Cursor.of("orderDate", "not-a-date", 1L).encode();
+
+        mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("after", cursor)
+                        .param("sort", "orderDate"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportOrders_ShouldStreamOneLinePerOrderWithItems() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order pendingOrder = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Order paidOrder = orderRepository.save(new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT));
+        orderRepository.save(new Order(ORDER_CUSTOMER_NAME_ALT_2, ORDER_DATE_ALT_2, ORDER_STATUS));
+        orderItemRepository.save(new OrderItem(pendingOrder, product, 1, PRODUCT_PRICE));
+        orderItemRepository.save(new OrderItem(pendingOrder, product, 2, PRODUCT_PRICE));
+        orderItemRepository.save(new OrderItem(paidOrder, product, 3, PRODUCT_PRICE));
+
+        MvcResult asyncResult = mockMvc.perform(get(EXPORT_PATH)
+                        .param("status", ORDER_STATUS.name()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines.get(0)).get("id").asLong()).isEqualTo(pendingOrder.getId());
+        assertThat(objectMapper.readTree(lines.get(0)).get("items")).hasSize(2);
+        assertThat(objectMapper.readTree(lines.get(1)).get("items")).isEmpty();
+    }
+
+    @Test
+    void testExportOrders_ShouldResumeAfterLastSeenId() throws Exception {
+        Order firstOrder = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Order secondOrder = orderRepository.save(new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT));
+
+        MvcResult asyncResult = mockMvc.perform(get(EXPORT_PATH)
+                        .param("afterId", firstOrder.getId().toString())
+                        .param("from", "2024-12-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize(1);
+        assertThat(objectMapper.readTree(lines.getFirst()).get("id").asLong()).isEqualTo(secondOrder.getId());
+    }
+
+    @Test
+    void testGetOrderDetails_ShouldReturnLinesWithTotals() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product otherProduct = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        orderItemRepository.save(new OrderItem(order, product, 2, 10.0));
+        orderItemRepository.save(new OrderItem(order, otherProduct, 3, 1.5));
+
+        mockMvc.perform(get(ORDER_DETAILS_PATH, order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value(ORDER_CUSTOMER_NAME))
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].productName").value(PRODUCT_NAME))
+                .andExpect(jsonPath("$.items[0].lineTotal").value(20.0))
+                .andExpect(jsonPath("$.items[1].lineTotal").value(4.5))
+                .andExpect(jsonPath("$.total").value(24.5));
+    }
+
+    @Test
+    void testGetOrderDetails_ShouldReturnNotFoundForUnknownOrder() throws Exception {
+        mockMvc.perform(get(ORDER_DETAILS_PATH, 999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetOrderDetailsBatch_ShouldIncludeOrdersWithoutItems() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Order emptyOrder = orderRepository.save(new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT));
+        orderItemRepository.save(new OrderItem(order, product, 1, PRODUCT_PRICE));
+
+        mockMvc.perform(get(ORDERS_DETAILS_PATH)
+                        .param("ids", order.getId() + "," + emptyOrder.getId() + ",999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].items", hasSize(1)))
+                .andExpect(jsonPath("$[0].total").value(PRODUCT_PRICE))
+                .andExpect(jsonPath("$[1].items", hasSize(0)))
+                .andExpect(jsonPath("$[1].total").value(0.0));
+    }
+
+    @Test
+    void testGetAllOrders_ShouldSortAndFilterByTotalAmount() throws Exception {
+        Order smallOrder = new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS);
+        smallOrder.setTotalAmount(10.0);
+        Order largeOrder = new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT);
+        largeOrder.setTotalAmount(500.0);
+        Order mediumOrder = new Order(ORDER_CUSTOMER_NAME_ALT_2, ORDER_DATE_ALT_2, ORDER_STATUS_ALT_2);
+        mediumOrder.setTotalAmount(100.0);
+        orderRepository.saveAll(List.of(smallOrder, largeOrder, mediumOrder));
+
+        mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("sortBy", "totalAmount")
+                        .param("direction", "DESC")
+                        .param("minTotal", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(2)))
+                .andExpect(jsonPath("$.content[0].totalAmount").value(500.0))
+                .andExpect(jsonPath("$.content[1].totalAmount").value(100.0));
+    }
+
+    @Test
+    void testGetAllOrders_ShouldRejectUnknownSortProperty() throws Exception {
+        mockMvc.perform(get(CREATE_ORDER_PATH)
+                        .param("sortBy", "customerName"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCheckout_ShouldStoreOrderTotals() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        CheckoutRequest request = new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS, List.of(
+                new CheckoutRequest.Item(product.getId(), 2, 10.0),
+                new CheckoutRequest.Item(product.getId(), 1, 2.5)));
+
+        mockMvc.perform(post(CHECKOUT_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.itemCount").value(2))
+                .andExpect(jsonPath("$.totalAmount").value(22.5));
+    }
+
+    @Test
+    void testGetOrderById_ShouldReturnNotModifiedUntilAnItemIsAdded() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        String eTag = mockMvc.perform(get(ORDER_ID_PATH, order.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(ORDER_ID_PATH, order.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(post("/api/order-items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderItem(order, product, 1, PRODUCT_PRICE))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(ORDER_ID_PATH, order.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.itemCount").value(1));
+    }
+
+    @Test
+    void testUpdateOrder_ShouldRejectStaleIfMatch() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Order updatedOrder = new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT);
+
+        mockMvc.perform(put(ORDER_ID_PATH, order.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"" + (order.getVersion() + 1) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedOrder)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put(ORDER_ID_PATH, order.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"" + order.getVersion() + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedOrder)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (order.getVersion() + 1) + "\""))
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_JSON_PATH).value(ORDER_CUSTOMER_NAME_ALT));
+    }
+}
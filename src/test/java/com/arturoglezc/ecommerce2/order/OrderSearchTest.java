@@ -0,0 +1,178 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.arturoglezc.ecommerce2.helper.JsonPathsTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OrderSearchTest {
+
+    private static final String SEARCH_PATH = "/api/orders/search";
+    private static final int ORDERS = 20_000;
+    private static final int CUSTOMERS = 2_000;
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 31, 12, 0);
+    private static final LocalDateTime LAST_WEEK = NOW.minusWeeks(1);
+    private static final String CUSTOMER = "Customer 42";
+    private static final String CUSTOMER_PREFIX = "Customer 4";
+    private static final String WILDCARD_CUSTOMER = "100% Cotton";
+    private static final String WILDCARD_PREFIX = "100%";
+    private static final int PAGE_SIZE = 20;
+    private static final int LATENCY_RUNS = 50;
+    private static final long MAX_MEDIAN_NANOS = 100_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Order> seeded = new ArrayList<>(ORDERS);
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        OrderStatus[] statuses = OrderStatus.values();
+        LocalDateTime start = NOW.minusYears(1);
+        List<Object[]> rows = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(i == 0 ? WILDCARD_CUSTOMER : "Customer " + random.nextInt(CUSTOMERS),
+                    start.plusMinutes(i * 26L), statuses[random.nextInt(statuses.length)]);
+            seeded.add(order);
+            rows.add(new Object[]{order.getCustomerName(), Timestamp.valueOf(order.getOrderDate()),
+                    order.getStatus().name()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (customer_name, order_date, status) VALUES (?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testSearchOrders_ShouldApplyAllFiltersInOneQuery() throws Exception {
+        List<Order> expected = seeded.stream()
+                .filter(order -> order.getStatus() == OrderStatus.PENDING)
+                .filter(order -> order.getCustomerName().startsWith(CUSTOMER_PREFIX))
+                .filter(order -> !order.getOrderDate().isBefore(LAST_WEEK) && order.getOrderDate().isBefore(NOW))
+                .toList();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(SEARCH_PATH)
+                        .param("status", "PENDING")
+                        .param("customerNamePrefix", CUSTOMER_PREFIX)
+                        .param("from", LAST_WEEK.toString())
+                        .param("to", NOW.toString())
+                        .param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(expected.size()))
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_FIRST_ELEMENT_JSON_PATH)
+                        .value(expected.getLast().getCustomerName()));
+
+        assertThat(expected).isNotEmpty().hasSizeLessThanOrEqualTo(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testSearchOrders_ShouldMatchAnyOfSeveralStatusesForExactCustomer() {
+        Set<OrderStatus> statuses = Set.of(OrderStatus.PAID, OrderStatus.SHIPPED);
+        long expected = seeded.stream()
+                .filter(order -> statuses.contains(order.getStatus()) && order.getCustomerName().equals(CUSTOMER))
+                .count();
+
+        CountedPage<Order> result = orderService.searchOrders(
+                new OrderSearch(List.copyOf(statuses), CUSTOMER, null, null, null),
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, OrderService.SORT_BY_ORDER_DATE)));
+
+        assertThat(result.page().getTotalElements()).isEqualTo(expected);
+        assertThat(result.page().getContent()).allSatisfy(order -> {
+            assertThat(order.getCustomerName()).isEqualTo(CUSTOMER);
+            assertThat(statuses).contains(order.getStatus());
+        });
+    }
+
+    @Test
+    void testSearchOrders_ShouldTreatWildcardsInPrefixLiterally() throws Exception {
+        mockMvc.perform(get(SEARCH_PATH).param("customerNamePrefix", WILDCARD_PREFIX))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(1))
+                .andExpect(jsonPath(ORDER_CUSTOMER_NAME_FIRST_ELEMENT_JSON_PATH).value(WILDCARD_CUSTOMER));
+    }
+
+    @Test
+    void testSearchOrders_ShouldRejectEmptyDateRange() throws Exception {
+        mockMvc.perform(get(SEARCH_PATH).param("from", NOW.toString()).param("to", LAST_WEEK.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchIndexes_ShouldServeSelectiveFilters() {
+        assertThat(explain("SELECT id FROM orders WHERE customer_name = 'Customer 42' "
+                + "AND order_date >= TIMESTAMP '2025-01-24 12:00:00'"))
+                .contains("IDX_ORDERS_CUSTOMER_NAME_ORDER_DATE");
+        assertThat(explain("SELECT id FROM orders WHERE status = 'PENDING' "
+                + "AND order_date >= TIMESTAMP '2025-01-24 12:00:00' ORDER BY order_date DESC"))
+                .contains("IDX_ORDERS_STATUS_ORDER_DATE");
+    }
+
+    @Test
+    void testSearchOrders_ShouldStayFastOnLargeDataset() {
+        OrderSearch search = new OrderSearch(List.of(OrderStatus.PENDING), null, CUSTOMER_PREFIX, LAST_WEEK, NOW);
+        PageRequest pageable = PageRequest.of(0, PAGE_SIZE, Sort.by(Sort.Direction.DESC, OrderService.SORT_BY_ORDER_DATE));
+        for (int i = 0; i < LATENCY_RUNS; i++) {
+            orderService.searchOrders(search, pageable);
+        }
+
+        long[] nanos = new long[LATENCY_RUNS];
+        for (int i = 0; i < LATENCY_RUNS; i++) {
+            long start = System.nanoTime();
+            orderService.searchOrders(search, pageable);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        assertThat(nanos[LATENCY_RUNS / 2]).isLessThan(MAX_MEDIAN_NANOS);
+    }
+
+    private String explain(String query) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+    }
+}
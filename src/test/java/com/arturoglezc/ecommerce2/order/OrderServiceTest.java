@@ -1,7 +1,11 @@
 package com.arturoglezc.ecommerce2.order;
 
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.outbox.Outbox;
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,6 +13,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
@@ -28,6 +34,21 @@ public class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private TotalCounts totalCounts;
+
+    @Mock
+    private Outbox outbox;
+
+    @Mock
+    private OrderStatusTransitionService orderStatusTransitionService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -108,12 +129,13 @@ public class OrderServiceTest {
 
     @Test
     void testUpdateOrder_ShouldUpdateAndReturnOrder() {
-        when(orderRepository.findById(testOrder.getId())).thenReturn(Optional.of(testOrder));
-
+        testOrder.setId(1L);
         Order updatedOrder = new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT);
         updatedOrder.setId(testOrder.getId());
 
-        when(orderRepository.save(any(Order.class))).thenReturn(updatedOrder);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), ArgumentMatchers.<RowMapper<Order>>any(), any(Object[].class)))
+                .thenReturn(updatedOrder);
 
         Order result = orderService.updateOrder(testOrder.getId(), updatedOrder);
 
@@ -121,18 +143,20 @@ public class OrderServiceTest {
         assertThat(result.getOrderDate()).isEqualTo(ORDER_DATE_ALT);
         assertThat(result.getStatus()).isEqualTo(ORDER_STATUS_ALT);
 
-        verify(orderRepository, times(1)).findById(testOrder.getId());
-        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any(Order.class));
     }
 
     @Test
     void testUpdateOrder_ShouldThrowExceptionIfNotFound() {
         Long invalidId = 999L;
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
         when(orderRepository.findById(invalidId)).thenReturn(Optional.empty());
 
         Order updatedOrder = new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT);
 
-        assertThrows(RuntimeException.class, () -> orderService.updateOrder(invalidId, updatedOrder));
+        assertThrows(ResponseStatusException.class, () -> orderService.updateOrder(invalidId, updatedOrder));
 
         verify(orderRepository, times(1)).findById(invalidId);
         verify(orderRepository, never()).save(any(Order.class));
@@ -140,17 +164,19 @@ public class OrderServiceTest {
 
     @Test
     void testDeleteOrder_ShouldDeleteOrder() {
-        when(orderRepository.findById(testOrder.getId())).thenReturn(Optional.of(testOrder));
+        when(orderItemRepository.deleteByOrderIdWithoutLoading(testOrder.getId())).thenReturn(2);
+        when(orderRepository.deleteByIdWithoutLoading(testOrder.getId())).thenReturn(1);
 
         orderService.deleteOrder(testOrder.getId());
 
-        verify(orderRepository, times(1)).findById(testOrder.getId());
-        verify(orderRepository, times(1)).deleteById(testOrder.getId());
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, times(1)).deleteByIdWithoutLoading(testOrder.getId());
+        verify(totalCounts, times(1)).add(TotalCounts.ORDER_ITEMS, -2);
     }
 
     @Test
     void testDeleteOrder_ShouldThrowExceptionIfNotFound() {
-        when(orderRepository.findById(testOrder.getId())).thenReturn(Optional.empty());
+        when(orderRepository.deleteByIdWithoutLoading(testOrder.getId())).thenReturn(0);
 
         assertThrows(ResponseStatusException.class, () -> {
             orderService.deleteOrder(testOrder.getId());
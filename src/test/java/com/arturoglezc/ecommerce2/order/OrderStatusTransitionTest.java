@@ -0,0 +1,221 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OrderStatusTransitionTest {
+
+    private static final String STATUS_TRANSITIONS_PATH = "/api/orders/status-transitions";
+    private static final String ORDER_ID_PATH = "/api/orders/{id}";
+    private static final String WAREHOUSE_CUSTOMER = "Warehouse customer";
+    private static final int WAREHOUSE_ORDERS = OrderStatusTransitionService.CHUNK_SIZE * 2 + 100;
+    private static final long UNKNOWN_ID = Long.MAX_VALUE;
+    private static final int STOCK = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testCanTransitionTo_ShouldOnlyAllowNextStepOrCancellation() {
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.PAID)).isTrue();
+        assertThat(OrderStatus.PAID.canTransitionTo(OrderStatus.SHIPPED)).isTrue();
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.DELIVERED)).isTrue();
+        assertThat(OrderStatus.DELIVERED.canTransitionTo(OrderStatus.CANCELLED)).isTrue();
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.SHIPPED)).isFalse();
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.PAID)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.PENDING)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void testTransition_ShouldReportOutcomePerId() throws Exception {
+        Order pending = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+        Order paid = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PAID));
+        Order delivered = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.DELIVERED));
+
+        transition(new OrderStatusTransitionRequest(OrderStatus.PAID,
+                List.of(pending.getId(), paid.getId(), delivered.getId(), pending.getId(), UNKNOWN_ID), null))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.unchanged").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.notFound").value(1))
+                .andExpect(jsonPath("$.results.length()").value(4))
+                .andExpect(jsonPath("$.results[0].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$.results[0].previousStatus").value("PENDING"))
+                .andExpect(jsonPath("$.results[1].outcome").value("UNCHANGED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$.results[2].previousStatus").value("DELIVERED"))
+                .andExpect(jsonPath("$.results[3].outcome").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[3].previousStatus").doesNotExist());
+
+        Order updated = orderRepository.findById(pending.getId()).orElseThrow();
+        assertThat(updated.getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(updated.getVersion()).isEqualTo(pending.getVersion() + 1);
+        assertThat(orderRepository.findById(delivered.getId()).orElseThrow().getStatus())
+                .isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    void testTransition_ShouldUpdateMatchingOrdersInChunksWithoutLoadingThem() throws Exception {
+        List<Object[]> rows = new ArrayList<>(WAREHOUSE_ORDERS);
+        for (int i = 0; i < WAREHOUSE_ORDERS; i++) {
+            rows.add(new Object[]{WAREHOUSE_CUSTOMER, Timestamp.valueOf(ORDER_DATE.plusMinutes(i)), OrderStatus.PAID.name()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (customer_name, order_date, status) VALUES (?, ?, ?)", rows);
+        Order otherCustomer = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PAID));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderSearch filter = new OrderSearch(List.of(OrderStatus.PAID), WAREHOUSE_CUSTOMER, null, null, null);
+        transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, null, filter))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(WAREHOUSE_ORDERS))
+                .andExpect(jsonPath("$.results.length()").value(WAREHOUSE_ORDERS));
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE customer_name = ? AND status = 'SHIPPED'", Integer.class,
+                WAREHOUSE_CUSTOMER)).isEqualTo(WAREHOUSE_ORDERS);
+        assertThat(orderRepository.findById(otherCustomer.getId()).orElseThrow().getStatus())
+                .isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    void testCancel_ShouldReturnStockOnce() throws Exception {
+        Product laptop = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        Product mouse = productRepository.save(new Product(PRODUCT_NAME_ALT_2, PRODUCT_PRICE_ALT_2, STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PAID));
+        orderItemService.createOrderItem(new OrderItem(order, laptop, 3, PRODUCT_PRICE));
+        OrderItem secondLaptops = orderItemService.createOrderItem(new OrderItem(order, laptop, 2, PRODUCT_PRICE));
+        orderItemService.createOrderItem(new OrderItem(order, mouse, 4, PRODUCT_PRICE_ALT_2));
+        assertThat(stockOf(laptop)).isEqualTo(STOCK - 5);
+
+        OrderStatusTransitionRequest cancel = new OrderStatusTransitionRequest(OrderStatus.CANCELLED,
+                List.of(order.getId()), null);
+        transition(cancel)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1));
+        assertThat(stockOf(laptop)).isEqualTo(STOCK);
+        assertThat(stockOf(mouse)).isEqualTo(STOCK);
+
+        transition(cancel)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unchanged").value(1));
+        orderItemService.deleteOrderItem(secondLaptops.getId());
+        assertThat(stockOf(laptop)).isEqualTo(STOCK);
+
+        assertThrows(ResponseStatusException.class,
+                () -> orderItemService.createOrderItem(new OrderItem(order, mouse, 1, PRODUCT_PRICE_ALT_2)));
+        assertThat(stockOf(mouse)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void testUpdateOrder_ShouldValidateTransitionAndReturnStockOnCancel() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+        orderItemService.createOrderItem(new OrderItem(order, product, 7, PRODUCT_PRICE));
+
+        mockMvc.perform(put(ORDER_ID_PATH, order.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.DELIVERED))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put(ORDER_ID_PATH, order.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.CANCELLED))))
+                .andExpect(status().isOk());
+        assertThat(stockOf(product)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void testTransition_ShouldRequireExactlyOneBoundedTarget() throws Exception {
+        OrderSearch filter = new OrderSearch(List.of(OrderStatus.PAID), null, null, null, null);
+        OrderSearch emptyFilter = new OrderSearch(null, null, null, null, null);
+        List<Long> tooManyIds = LongStream.rangeClosed(1, OrderStatusTransitionService.MAX_ORDERS + 1).boxed().toList();
+
+        transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, List.of(1L), filter))
+                .andExpect(status().isBadRequest());
+        transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, null, null))
+                .andExpect(status().isBadRequest());
+        transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, null, emptyFilter))
+                .andExpect(status().isBadRequest());
+        transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, tooManyIds, null))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions transition(OrderStatusTransitionRequest request) throws Exception {
+        return mockMvc.perform(post(STATUS_TRANSITIONS_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,60 @@
+package com.arturoglezc.ecommerce2.order;
+
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class OrderTotalsBackfillTest {
+
+    @Autowired
+    private OrderTotalsBackfill orderTotalsBackfill;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testBackfill_ShouldRecomputeTotalsFromItems() {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Order emptyOrder = new Order(ORDER_CUSTOMER_NAME_ALT, ORDER_DATE_ALT, ORDER_STATUS_ALT);
+        emptyOrder.setItemCount(3);
+        emptyOrder.setTotalAmount(42.0);
+        orderRepository.save(emptyOrder);
+        orderItemRepository.save(new OrderItem(order, product, 2, 10.0));
+        orderItemRepository.save(new OrderItem(order, product, 1, 0.5));
+
+        assertThat(orderTotalsBackfill.backfill()).isEqualTo(2);
+
+        Order backfilledOrder = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(backfilledOrder.getItemCount()).isEqualTo(2);
+        assertThat(backfilledOrder.getTotalAmount()).isEqualTo(20.5);
+        Order backfilledEmptyOrder = orderRepository.findById(emptyOrder.getId()).orElseThrow();
+        assertThat(backfilledEmptyOrder.getItemCount()).isZero();
+        assertThat(backfilledEmptyOrder.getTotalAmount()).isZero();
+    }
+}
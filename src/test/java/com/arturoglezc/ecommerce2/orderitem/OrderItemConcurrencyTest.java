@@ -0,0 +1,159 @@
+package com.arturoglezc.ecommerce2.orderitem;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductStockShard;
+import com.arturoglezc.ecommerce2.product.ProductStockShardRepository;
+import com.arturoglezc.ecommerce2.product.ProductStockShardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class OrderItemConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardService productStockShardService;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productStockShardRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testConcurrentCheckouts_ShouldSellAsMuchAsLockAndSaveWithoutOversell() throws Exception {
+        Product lockedProduct = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, INITIAL_STOCK));
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, INITIAL_STOCK));
+
+        int lockedSold = runConcurrently(() -> lockAndSaveCheckout(lockedProduct.getId()));
+        int sold = runConcurrently(() -> orderItemService.createOrderItem(
+                new OrderItem(order, product, 1, PRODUCT_PRICE)));
+
+        int lockedStock = productRepository.findById(lockedProduct.getId()).orElseThrow().getStock();
+        int stock = productRepository.findById(product.getId()).orElseThrow().getStock();
+        assertThat(lockedStock).isGreaterThanOrEqualTo(0);
+        assertThat(lockedSold).isEqualTo(INITIAL_STOCK - lockedStock);
+        assertThat(stock).isGreaterThanOrEqualTo(0);
+        assertThat(sold).isLessThanOrEqualTo(INITIAL_STOCK).isEqualTo(INITIAL_STOCK - stock);
+        assertThat(orderItemRepository.findByProductId(product.getId())).hasSize(sold);
+        assertThat(sold).isEqualTo(lockedSold).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void testConcurrentOrderItems_ShouldNeverOversellShardedStock() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, INITIAL_STOCK));
+        productStockShardService.rebalance(product.getId(), 4);
+
+        runConcurrently(() -> orderItemService.createOrderItem(
+                new OrderItem(order, product, ThreadLocalRandom.current().nextInt(1, 4), PRODUCT_PRICE)));
+
+        int soldUnits = orderItemRepository.findByProductId(product.getId()).stream()
+                .mapToInt(OrderItem::getQuantity)
+                .sum();
+        int stock = productRepository.findById(product.getId()).orElseThrow().getStock();
+        assertThat(soldUnits).isLessThanOrEqualTo(INITIAL_STOCK);
+        assertThat(stock).isEqualTo(INITIAL_STOCK - soldUnits);
+        assertThat(productStockShardService.getShards(product.getId()))
+                .extracting(ProductStockShard::getStock)
+                .allMatch(shardStock -> shardStock >= 0);
+    }
+
+    /**
+     * The path the guarded UPDATE replaced, made safe with a row lock: read the product for update, check and
+     * save its stock, then save the item.
+     */
+    private void lockAndSaveCheckout(Long productId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findByIdForUpdate(productId).orElseThrow();
+            if (product.getStock() < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+            }
+            product.setStock(product.getStock() - 1);
+            productRepository.save(product);
+            orderItemRepository.save(new OrderItem(orderRepository.getReferenceById(order.getId()), product, 1, PRODUCT_PRICE_ALT));
+        });
+    }
+
+    private int runConcurrently(Runnable checkout) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    try {
+                        checkout.run();
+                        successes.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // rejected checkout or lock timeout
+                    }
+                }
+                return null;
+            }));
+        }
+
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return successes.get();
+    }
+}
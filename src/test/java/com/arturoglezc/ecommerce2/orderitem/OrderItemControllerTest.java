@@ -6,11 +6,15 @@ import com.arturoglezc.ecommerce2.order.OrderRepository;
 import com.arturoglezc.ecommerce2.product.Product;
 import com.arturoglezc.ecommerce2.product.ProductRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -20,6 +24,8 @@ import java.util.Optional;
 import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
 import static com.arturoglezc.ecommerce2.orderitem.OrderItemTestConstants.*;
 import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.hamcrest.Matchers.hasSize;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -48,6 +54,9 @@ public class OrderItemControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterEach
     void tearDown() {
         orderItemRepository.deleteAll();
@@ -119,4 +128,100 @@ public class OrderItemControllerTest {
         Optional<OrderItem> deletedOrderItem = orderItemRepository.findById(savedOrderItem.getId());
         assertTrue(deletedOrderItem.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetOrderItemsAfter_ShouldReturnSlicesWithNextCursor() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+
+        orderItemRepository.save(new OrderItem(order, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE));
+        orderItemRepository.save(new OrderItem(order, product, ORDER_ITEM_QUANTITY_ALT, ORDER_ITEM_UNIT_PRICE_ALT));
+
+        String firstSlice = mockMvc.perform(get(ORDER_ITEM_PATH)
+                        .param("after", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(JsonPathsTestConstants.CONTENT_JSON_PATH, hasSize(1)))
+                .andExpect(jsonPath(JsonPathsTestConstants.HAS_NEXT_JSON_PATH).value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get(ORDER_ITEM_PATH)
+                        .param("after", objectMapper.readTree(firstSlice).get("next").asText())
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(JsonPathsTestConstants.CONTENT_JSON_PATH, hasSize(1)))
+                .andExpect(jsonPath("$.content[0].quantity").value(ORDER_ITEM_QUANTITY_ALT))
+                .andExpect(jsonPath(JsonPathsTestConstants.HAS_NEXT_JSON_PATH).value(false));
+    }
+
+    @Test
+    void testGetAllOrderItems_ShouldNotLoadAssociationsPerRow() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME + i, ORDER_DATE, ORDER_STATUS));
+            Product product = productRepository.save(new Product(PRODUCT_NAME + i, PRODUCT_PRICE, PRODUCT_STOCK));
+            orderItemRepository.save(new OrderItem(order, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(ORDER_ITEM_PATH)
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(JsonPathsTestConstants.CONTENT_JSON_PATH, hasSize(5)))
+                .andExpect(jsonPath("$.content[0].customerName").value(ORDER_CUSTOMER_NAME + 0))
+                .andExpect(jsonPath("$.content[0].productName").value(PRODUCT_NAME + 0));
+
+        // one page query and one count query, regardless of the page size
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void testOrderItemLifecycle_ShouldMaintainOrderTotals() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+
+        String created = mockMvc.perform(post(ORDER_ITEM_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderItem(order, product, 2, 10.0))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long orderItemId = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(post(ORDER_ITEM_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderItem(order, product, 1, 5.0))))
+                .andExpect(status().isCreated());
+        assertTotals(order.getId(), 2, 25.0);
+
+        mockMvc.perform(put(ORDER_ITEM_BY_ID_PATH, orderItemId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderItem(order, product, 3, 10.0))))
+                .andExpect(status().isOk());
+        assertTotals(order.getId(), 2, 35.0);
+
+        mockMvc.perform(delete(ORDER_ITEM_BY_ID_PATH, orderItemId))
+                .andExpect(status().isNoContent());
+        assertTotals(order.getId(), 1, 5.0);
+    }
+
+    private void assertTotals(Long orderId, int itemCount, double totalAmount) {
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertThat(order.getItemCount()).isEqualTo(itemCount);
+        assertThat(order.getTotalAmount()).isEqualTo(totalAmount);
+    }
+
+    @Test
+    void testUpdateOrderItem_ShouldRejectStaleIfMatchWithoutTouchingStock() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        OrderItem savedOrderItem = orderItemRepository.save(new OrderItem(order, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE));
+
+        mockMvc.perform(put(ORDER_ITEM_BY_ID_PATH, savedOrderItem.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"" + (savedOrderItem.getVersion() + 1) + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new OrderItem(order, product, ORDER_ITEM_QUANTITY_ALT, ORDER_ITEM_UNIT_PRICE))))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+    }
+}
@@ -2,13 +2,19 @@ package com.arturoglezc.ecommerce2.orderitem;
 
 import com.arturoglezc.ecommerce2.order.Order;
 import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.outbox.Outbox;
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
 import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductChangeStream;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
 import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductStockShardService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
@@ -32,6 +38,21 @@ public class OrderItemServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ProductPageCache productPageCache;
+
+    @Mock
+    private ProductChangeStream productChangeStream;
+
+    @Mock
+    private ProductStockShardService productStockShardService;
+
+    @Mock
+    private TotalCounts totalCounts;
+
+    @Mock
+    private Outbox outbox;
+
     @InjectMocks
     private OrderItemService orderItemService;
 
@@ -50,25 +71,26 @@ public class OrderItemServiceTest {
 
     @Test
     void testGetOrderItemById_ShouldReturnOrderItem() {
-        when(orderItemRepository.findById(testOrderItem.getId())).thenReturn(Optional.of(testOrderItem));
+        when(orderItemRepository.findViewById(testOrderItem.getId())).thenReturn(Optional.of(OrderItemView.from(testOrderItem)));
 
-        OrderItem foundOrderItem = orderItemService.getOrderItemById(testOrderItem.getId());
+        OrderItemView foundOrderItem = orderItemService.getOrderItemById(testOrderItem.getId());
 
         assertThat(foundOrderItem).isNotNull();
-        assertThat(foundOrderItem.getQuantity()).isEqualTo(ORDER_ITEM_QUANTITY);
-        assertThat(foundOrderItem.getProduct().getName()).isEqualTo(PRODUCT_NAME);
-        verify(orderItemRepository, times(1)).findById(testOrderItem.getId());
+        assertThat(foundOrderItem.quantity()).isEqualTo(ORDER_ITEM_QUANTITY);
+        assertThat(foundOrderItem.productName()).isEqualTo(PRODUCT_NAME);
+        verify(orderItemRepository, times(1)).findViewById(testOrderItem.getId());
     }
 
     @Test
     void testGetOrderItemById_ShouldThrowExceptionIfNotFound() {
-        when(orderItemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(orderItemRepository.findViewById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(ResponseStatusException.class, () -> orderItemService.getOrderItemById(999L));
     }
 
     @Test
     void testCreateOrderItem_ShouldSaveAndReturnOrderItem() {
+        when(productRepository.decrementStock(testProduct.getId(), ORDER_ITEM_QUANTITY)).thenReturn(1);
         when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
         when(orderRepository.findById(testOrder.getId())).thenReturn(Optional.of(testOrder));
         when(orderItemRepository.save(any(OrderItem.class))).thenReturn(testOrderItem);
@@ -77,42 +99,59 @@ public class OrderItemServiceTest {
 
         assertThat(savedOrderItem).isNotNull();
         assertThat(savedOrderItem.getQuantity()).isEqualTo(ORDER_ITEM_QUANTITY);
-        assertThat(testProduct.getStock()).isEqualTo(PRODUCT_STOCK - ORDER_ITEM_QUANTITY);
-        verify(productRepository, times(1)).save(testProduct);
+        verify(productRepository, times(1)).decrementStock(testProduct.getId(), ORDER_ITEM_QUANTITY);
+        verify(productRepository, never()).save(any(Product.class));
         verify(orderItemRepository, times(1)).save(testOrderItem);
     }
 
     @Test
     void testCreateOrderItem_ShouldThrowExceptionIfNotEnoughStock() {
         testOrderItem.setQuantity(200);
+        when(productRepository.decrementStock(testProduct.getId(), 200)).thenReturn(0);
         when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
 
-        assertThrows(ResponseStatusException.class, () -> orderItemService.createOrderItem(testOrderItem));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> orderItemService.createOrderItem(testOrderItem));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldThrowNotFoundIfProductDoesNotExist() {
+        when(productRepository.decrementStock(testProduct.getId(), ORDER_ITEM_QUANTITY)).thenReturn(0);
+        when(productRepository.findById(testProduct.getId())).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> orderItemService.createOrderItem(testOrderItem));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
     @Test
     void testUpdateOrderItem_ShouldUpdateAndReturnOrderItem() {
+        OrderItem changedOrderItem = new OrderItem(testOrder, testProduct, 20, ORDER_ITEM_UNIT_PRICE);
         when(orderItemRepository.findById(testOrderItem.getId())).thenReturn(Optional.of(testOrderItem));
+        when(productRepository.decrementStock(testProduct.getId(), 20 - ORDER_ITEM_QUANTITY)).thenReturn(1);
         when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
         when(orderRepository.findById(testOrder.getId())).thenReturn(Optional.of(testOrder));
-        when(orderItemRepository.save(any(OrderItem.class))).thenReturn(testOrderItem);
+        when(orderItemRepository.save(any(OrderItem.class))).thenReturn(changedOrderItem);
 
-        testOrderItem.setQuantity(20);
-        OrderItem updatedOrderItem = orderItemService.updateOrderItem(testOrderItem.getId(), testOrderItem);
+        OrderItem updatedOrderItem = orderItemService.updateOrderItem(testOrderItem.getId(), changedOrderItem);
 
         assertThat(updatedOrderItem.getQuantity()).isEqualTo(20);
-        verify(orderItemRepository, times(1)).save(testOrderItem);
+        verify(productRepository, times(1)).decrementStock(testProduct.getId(), 20 - ORDER_ITEM_QUANTITY);
+        verify(orderItemRepository, times(1)).save(changedOrderItem);
     }
 
     @Test
     void testDeleteOrderItem_ShouldRestoreStockAndDeleteOrderItem() {
         when(orderItemRepository.findById(testOrderItem.getId())).thenReturn(Optional.of(testOrderItem));
-        when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
+        when(productRepository.incrementStock(testProduct.getId(), ORDER_ITEM_QUANTITY)).thenReturn(1);
 
         orderItemService.deleteOrderItem(testOrderItem.getId());
 
-        assertThat(testProduct.getStock()).isEqualTo(PRODUCT_STOCK + ORDER_ITEM_QUANTITY);
-        verify(productRepository, times(1)).save(testProduct);
+        verify(productRepository, times(1)).incrementStock(testProduct.getId(), ORDER_ITEM_QUANTITY);
         verify(orderItemRepository, times(1)).deleteById(testOrderItem.getId());
     }
 
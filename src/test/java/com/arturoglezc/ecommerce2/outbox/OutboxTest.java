@@ -0,0 +1,196 @@
+package com.arturoglezc.ecommerce2.outbox;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderService;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "outbox.relay.batch-size=50")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OutboxTest {
+
+    private static final String STATS_PATH = "/api/outbox/stats";
+    private static final String COUNT_EVENTS = "SELECT COUNT(*) FROM outbox_event";
+    private static final int BATCH_SIZE = 50;
+    private static final int ORDERS = 120;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @MockitoSpyBean
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        sink.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM outbox_event");
+    }
+
+    @Test
+    void testOrderItemWrites_ShouldAppendItemAndStockEvents() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderService.createOrder(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        OrderItem orderItem = orderItemService.createOrderItem(new OrderItem(order, product, 3, PRODUCT_PRICE));
+        orderItemService.deleteOrderItem(orderItem.getId());
+
+        assertThat(outboxRelay.drain()).isEqualTo(5);
+
+        List<OutboxEvent> events = sink.events();
+        assertThat(events).extracting(OutboxEvent::type).containsExactly(
+                OutboxEventType.ORDER_CREATED,
+                OutboxEventType.ITEM_ADDED, OutboxEventType.STOCK_CHANGED,
+                OutboxEventType.ITEM_REMOVED, OutboxEventType.STOCK_CHANGED);
+        assertThat(events.get(1).aggregateId()).isEqualTo(orderItem.getId());
+        assertThat(events.get(2).aggregateId()).isEqualTo(product.getId());
+        assertThat(objectMapper.readTree(events.get(2).payload()).get("delta").asInt()).isEqualTo(-3);
+        assertThat(objectMapper.readTree(events.get(4).payload()).get("delta").asInt()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(COUNT_EVENTS, Long.class)).isZero();
+    }
+
+    @Test
+    void testRejectedWrite_ShouldAppendNothing() {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        assertThatThrownBy(() -> orderItemService.createOrderItem(
+                new OrderItem(order, product, PRODUCT_STOCK + 1, PRODUCT_PRICE)))
+                .isInstanceOf(ResponseStatusException.class);
+
+        assertThat(jdbcTemplate.queryForObject(COUNT_EVENTS, Long.class)).isZero();
+    }
+
+    @Test
+    void testAppend_ShouldRequireTransaction() {
+        assertThatThrownBy(() -> outbox.append(OutboxEventType.ORDER_DELETED, 1L, List.of()))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    void testCheckout_ShouldAppendOrderWithLinesAndStockPerProduct() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product productAlt = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+        Order order = orderItemService.checkout(new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS, List.of(
+                new CheckoutRequest.Item(product.getId(), 1, PRODUCT_PRICE),
+                new CheckoutRequest.Item(productAlt.getId(), 2, PRODUCT_PRICE_ALT),
+                new CheckoutRequest.Item(product.getId(), 3, PRODUCT_PRICE))));
+
+        outboxRelay.drain();
+
+        List<OutboxEvent> events = sink.events();
+        assertThat(events).extracting(OutboxEvent::type).containsExactly(
+                OutboxEventType.ORDER_CREATED, OutboxEventType.STOCK_CHANGED, OutboxEventType.STOCK_CHANGED);
+        JsonNode created = objectMapper.readTree(events.getFirst().payload());
+        assertThat(events.getFirst().aggregateId()).isEqualTo(order.getId());
+        assertThat(created.get("lines")).hasSize(3);
+        assertThat(created.get("itemCount").asInt()).isEqualTo(3);
+        assertThat(events.subList(1, 3)).extracting(OutboxEvent::aggregateId)
+                .containsExactlyInAnyOrder(product.getId(), productAlt.getId());
+    }
+
+    @Test
+    void testDrain_ShouldPublishInIdOrderInBatches() throws Exception {
+        for (int i = 0; i < ORDERS; i++) {
+            orderService.createOrder(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        }
+        OutboxRelayStatistics before = outboxRelay.getStatistics();
+        assertThat(before.oldestPendingAgeMillis()).isNotNegative();
+
+        assertThat(outboxRelay.drain()).isEqualTo(ORDERS);
+
+        OutboxRelayStatistics after = outboxRelay.getStatistics();
+        assertThat(sink.events()).extracting(OutboxEvent::id).isSorted().doesNotHaveDuplicates().hasSize(ORDERS);
+        assertThat(after.batches() - before.batches()).isEqualTo((ORDERS + BATCH_SIZE - 1) / BATCH_SIZE);
+        assertThat(after.published() - before.published()).isEqualTo(ORDERS);
+        assertThat(after.lastEventsPerSecond()).isPositive();
+        mockMvc.perform(get(STATS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.oldestPendingAgeMillis").value(0))
+                .andExpect(jsonPath("$.published").value(after.published()));
+    }
+
+    @Test
+    void testSinkFailure_ShouldKeepBatchForNextRun() throws Exception {
+        orderService.createOrder(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        long failures = outboxRelay.getStatistics().failures();
+        doThrow(new IOException("sink down")).doCallRealMethod().when(sink).publish(any());
+
+        outboxRelay.publishPending();
+
+        assertThat(outboxRelay.getStatistics().failures()).isEqualTo(failures + 1);
+        assertThat(jdbcTemplate.queryForObject(COUNT_EVENTS, Long.class)).isEqualTo(1);
+
+        outboxRelay.publishPending();
+
+        assertThat(sink.events()).extracting(OutboxEvent::type).containsExactly(OutboxEventType.ORDER_CREATED);
+        assertThat(jdbcTemplate.queryForObject(COUNT_EVENTS, Long.class)).isZero();
+    }
+}
@@ -0,0 +1,168 @@
+package com.arturoglezc.ecommerce2.pagination;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderService;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductPageCache;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static com.arturoglezc.ecommerce2.helper.JsonPathsTestConstants.*;
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "products.count-strategy=counter",
+        "orders.count-strategy=estimate",
+        "order-items.count-strategy=counter"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class TotalCountsTest {
+
+    private static final String GET_ALL_PRODUCTS_PATH = "/api/products?page=0&size=2";
+    private static final String GET_ALL_ORDERS_PATH = "/api/orders?page=0&size=2";
+    private static final String GET_ALL_ORDERS_MIN_TOTAL_PATH = "/api/orders?page=0&size=2&minTotal=0";
+    private static final String GET_ALL_ORDER_ITEMS_PATH = "/api/order-items?page=0&size=2";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TotalCounts totalCounts;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        totalCounts.reset();
+        productPageCache.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testCounterStrategy_ShouldFollowCreatesAndDeletesWithoutCounting() throws Exception {
+        productService.createProduct(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product product = productService.createProduct(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(header().string(CountStrategy.HEADER, "counter"))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(2));
+
+        productService.createProduct(new Product(PRODUCT_NAME_ALT_2, PRODUCT_PRICE_ALT_2, PRODUCT_STOCK_ALT_2));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH).isArray())
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        productService.deleteProduct(product.getId());
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(2));
+    }
+
+    @Test
+    void testCounterStrategy_ShouldFollowCheckoutAndOrderDeletes() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        orderItemService.createOrderItem(new OrderItem(order, product, 1, PRODUCT_PRICE));
+        mockMvc.perform(get(GET_ALL_ORDER_ITEMS_PATH))
+                .andExpect(header().string(CountStrategy.HEADER, "counter"))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(1));
+
+        Order checkedOut = orderItemService.checkout(new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS,
+                List.of(new CheckoutRequest.Item(product.getId(), 1, PRODUCT_PRICE),
+                        new CheckoutRequest.Item(product.getId(), 2, PRODUCT_PRICE))));
+        mockMvc.perform(get(GET_ALL_ORDER_ITEMS_PATH))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(3));
+
+        orderService.deleteOrder(checkedOut.getId());
+        mockMvc.perform(get(GET_ALL_ORDER_ITEMS_PATH))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(1));
+    }
+
+    @Test
+    void testEstimateStrategy_ShouldCountExactlyWhileStatisticsReportNoRows() throws Exception {
+        mockMvc.perform(get(GET_ALL_ORDERS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CountStrategy.HEADER, "exact"))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(0));
+    }
+
+    @Test
+    void testEstimateStrategy_ShouldReadDatabaseStatisticsAtMostOncePerMaxAge() throws Exception {
+        orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        mockMvc.perform(get(GET_ALL_ORDERS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CountStrategy.HEADER, "estimate"))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(2));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(GET_ALL_ORDERS_PATH))
+                .andExpect(header().string(CountStrategy.HEADER, "estimate"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testFilteredOrders_ShouldAlwaysBeCountedExactly() throws Exception {
+        orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        mockMvc.perform(get(GET_ALL_ORDERS_MIN_TOTAL_PATH))
+                .andExpect(header().string(CountStrategy.HEADER, "exact"))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(1));
+    }
+}
@@ -0,0 +1,214 @@
+package com.arturoglezc.ecommerce2.patch;
+
+import com.arturoglezc.ecommerce2.helper.StatementCounter;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.order.OrderStatus;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.product.Product;
+import com.arturoglezc.ecommerce2.product.ProductRepository;
+import com.arturoglezc.ecommerce2.product.ProductService;
+import com.arturoglezc.ecommerce2.product.ProductStockShardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(StatementCounter.class)
+public class MergePatchTest {
+
+    private static final String PRODUCT_ID_PATH = "/api/products/{id}";
+    private static final String ORDER_ID_PATH = "/api/orders/{id}";
+    private static final long UNKNOWN_ID = Long.MAX_VALUE;
+    private static final int STOCK = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+        productStockShardRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testPatchProduct_ShouldWriteOnlyPatchedColumnsInOneStatement() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+
+        statementCounter.start();
+        patchProduct(product.getId(), "{\"price\": 99.5}").andExpect(status().isNoContent());
+        assertThat(statementCounter.stop()).isEqualTo(1);
+
+        Product patched = productService.getProductById(product.getId());
+        assertThat(patched.getPrice()).isEqualTo(99.5);
+        assertThat(patched.getName()).isEqualTo(PRODUCT_NAME);
+        assertThat(patched.getStock()).isEqualTo(STOCK);
+        assertThat(patched.getVersion()).isEqualTo(product.getVersion() + 1);
+    }
+
+    @Test
+    void testPatchOrder_ShouldUpdateWithOneStatementBesidesItsOutboxEvent() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+
+        statementCounter.start();
+        patchOrder(order.getId(), "{\"customerName\": \"" + ORDER_CUSTOMER_NAME_ALT_2 + "\", \"status\": \"PAID\"}")
+                .andExpect(status().isNoContent());
+        assertThat(statementCounter.stop()).isEqualTo(2);
+
+        Order patched = orderRepository.findById(order.getId()).orElseThrow();
+        assertThat(patched.getCustomerName()).isEqualTo(ORDER_CUSTOMER_NAME_ALT_2);
+        assertThat(patched.getStatus()).isEqualTo(OrderStatus.PAID);
+        assertThat(patched.getOrderDate()).isEqualTo(ORDER_DATE);
+    }
+
+    @Test
+    void testPatchOrder_ShouldCheckIfMatchInItsUpdate() throws Exception {
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+        long version = orderRepository.findVersionById(order.getId()).orElseThrow();
+
+        statementCounter.start();
+        mockMvc.perform(mergePatch(ORDER_ID_PATH, order.getId(), "{\"status\": \"PAID\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"" + (version + 5) + "\", \"" + version + "\""))
+                .andExpect(status().isNoContent());
+        assertThat(statementCounter.stop()).isEqualTo(2);
+
+        mockMvc.perform(mergePatch(ORDER_ID_PATH, order.getId(), "{\"customerName\": \"x\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"" + version + "\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(mergePatch(ORDER_ID_PATH, UNKNOWN_ID, "{\"customerName\": \"x\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"" + version + "\""))
+                .andExpect(status().isNotFound());
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    void testPatch_ShouldValidateOnlyPatchedFields() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+
+        patchProduct(product.getId(), "{\"name\": \"\"}").andExpect(status().isBadRequest());
+        patchProduct(product.getId(), "{\"price\": -1}").andExpect(status().isBadRequest());
+        patchProduct(product.getId(), "{\"stock\": null}").andExpect(status().isBadRequest());
+        patchProduct(product.getId(), "{\"stockShards\": 4}").andExpect(status().isBadRequest());
+        patchProduct(product.getId(), "[]").andExpect(status().isBadRequest());
+        patchOrder(order.getId(), "{\"status\": \"LOST\"}").andExpect(status().isBadRequest());
+        patchOrder(order.getId(), "{\"itemCount\": 3}").andExpect(status().isBadRequest());
+
+        patchProduct(UNKNOWN_ID, "{\"price\": 1}").andExpect(status().isNotFound());
+        patchOrder(UNKNOWN_ID, "{\"customerName\": \"x\"}").andExpect(status().isNotFound());
+        patchOrder(UNKNOWN_ID, "{}").andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testPatchOrder_ShouldGuardStatusTransitionsAndEntityTags() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+        orderItemService.createOrderItem(new OrderItem(order, product, 6, PRODUCT_PRICE));
+        long version = orderRepository.findVersionById(order.getId()).orElseThrow();
+
+        patchOrder(order.getId(), "{\"status\": \"SHIPPED\"}").andExpect(status().isBadRequest());
+        mockMvc.perform(mergePatch(ORDER_ID_PATH, order.getId(), "{\"status\": \"PAID\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"" + (version + 1) + "\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(mergePatch(ORDER_ID_PATH, order.getId(), "{\"status\": \"PAID\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"" + version + "\""))
+                .andExpect(status().isNoContent());
+
+        patchOrder(order.getId(), "{\"status\": \"CANCELLED\"}").andExpect(status().isNoContent());
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK);
+        patchOrder(order.getId(), "{\"status\": \"CANCELLED\", \"customerName\": \"" + ORDER_CUSTOMER_NAME_ALT_2 + "\"}")
+                .andExpect(status().isNoContent());
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK);
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getCustomerName())
+                .isEqualTo(ORDER_CUSTOMER_NAME_ALT_2);
+    }
+
+    @Test
+    void testPatchProduct_ShouldReplaceStockOfShardedProduct() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        productService.enableStockSharding(product.getId(), 4);
+
+        patchProduct(product.getId(), "{\"stock\": 40, \"name\": \"" + PRODUCT_NAME_ALT + "\"}")
+                .andExpect(status().isNoContent());
+
+        Product patched = productService.getProductById(product.getId());
+        assertThat(patched.getStock()).isEqualTo(40);
+        assertThat(patched.getName()).isEqualTo(PRODUCT_NAME_ALT);
+        assertThat(patched.getStockShards()).isEqualTo(4);
+    }
+
+    @Test
+    void testDelete_ShouldUseAffectedRowCountInsteadOfLoading() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        Product unused = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, STOCK));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, OrderStatus.PENDING));
+        orderItemService.createOrderItem(new OrderItem(order, product, 1, PRODUCT_PRICE));
+        orderItemService.createOrderItem(new OrderItem(order, product, 2, PRODUCT_PRICE));
+
+        statementCounter.start();
+        mockMvc.perform(delete(ORDER_ID_PATH, order.getId())).andExpect(status().isNoContent());
+        assertThat(statementCounter.stop()).isEqualTo(3);
+        assertThat(orderItemRepository.findByOrderId(order.getId())).isEmpty();
+
+        statementCounter.start();
+        mockMvc.perform(delete(PRODUCT_ID_PATH, unused.getId())).andExpect(status().isNoContent());
+        assertThat(statementCounter.stop()).isEqualTo(2);
+
+        mockMvc.perform(delete(ORDER_ID_PATH, order.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(delete(PRODUCT_ID_PATH, unused.getId())).andExpect(status().isNotFound());
+    }
+
+    private ResultActions patchProduct(Long id, String patch) throws Exception {
+        return mockMvc.perform(mergePatch(PRODUCT_ID_PATH, id, patch));
+    }
+
+    private ResultActions patchOrder(Long id, String patch) throws Exception {
+        return mockMvc.perform(mergePatch(ORDER_ID_PATH, id, patch));
+    }
+
+    private static MockHttpServletRequestBuilder mergePatch(String path, Long id, String patch) {
+        return patch(path, id).contentType(MergePatch.MEDIA_TYPE).content(patch);
+    }
+}
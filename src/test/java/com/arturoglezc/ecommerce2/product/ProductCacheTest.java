@@ -0,0 +1,187 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProductCacheTest {
+
+    private static final int READS = 2_000;
+    private static final int READER_THREADS = 4;
+    private static final int STOCK = 100;
+    private static final int WRITES = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductStockShardService productStockShardService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Product product;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productStockShardRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testGetProductById_ShouldBeServedFromCacheOnceLoaded() {
+        productService.getProductById(product.getId());
+        long hits = productCache.getStatistics().hits();
+
+        productService.getProductById(product.getId());
+
+        assertThat(productCache.getStatistics().hits()).isEqualTo(hits + 1);
+        assertThat(productCache.contains(product.getId())).isTrue();
+    }
+
+    @Test
+    void testGetProductById_ShouldCountMissAndPutWhenNotCached() throws InterruptedException {
+        productCache.evict(product.getId());
+        ProductCacheStatistics before = productCache.getStatistics();
+
+        productService.getProductById(product.getId());
+
+        assertThat(productCache.getStatistics().misses()).isGreaterThan(before.misses());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (productCache.getStatistics().puts() == before.puts() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(productCache.getStatistics().puts()).isEqualTo(before.puts() + 1);
+        assertThat(productCache.getStatistics().size()).isPositive();
+    }
+
+    @Test
+    void testStockWrites_ShouldNeverLeaveStaleStockInCache() {
+        productService.getProductById(product.getId());
+        OrderItem orderItem = orderItemService.createOrderItem(new OrderItem(order, product, 3, PRODUCT_PRICE));
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 3);
+
+        orderItemService.updateOrderItem(orderItem.getId(), new OrderItem(order, product, 1, PRODUCT_PRICE));
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 1);
+
+        orderItemService.checkout(new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS,
+                List.of(new CheckoutRequest.Item(product.getId(), 4, PRODUCT_PRICE))));
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 5);
+
+        orderItemService.deleteOrderItem(orderItem.getId());
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 4);
+    }
+
+    @Test
+    void testShardWrites_ShouldNeverLeaveStaleStockInCache() {
+        productService.enableStockSharding(product.getId(), 4);
+        productService.getProductById(product.getId());
+
+        orderItemService.createOrderItem(new OrderItem(order, product, 2, PRODUCT_PRICE));
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 2);
+
+        productService.disableStockSharding(product.getId());
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - 2);
+    }
+
+    @Test
+    void testConcurrentReads_ShouldNotCacheStockFromBeforeACommittedWrite() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(READER_THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < READER_THREADS; i++) {
+            futures.add(readers.submit(() -> {
+                while (writing.get()) {
+                    productService.getProductById(product.getId());
+                }
+            }));
+        }
+
+        try {
+            for (int sold = 1; sold <= WRITES; sold++) {
+                orderItemService.createOrderItem(new OrderItem(order, product, 1, PRODUCT_PRICE));
+                assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(STOCK - sold);
+            }
+        } finally {
+            writing.set(false);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            readers.shutdown();
+        }
+    }
+
+    @Test
+    void testReadHeavyLoad_ShouldLoadFromDatabaseOnlyWhenNotCached() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        for (int i = 0; i < READS; i++) {
+            productCache.evict(product.getId());
+            productService.getProductById(product.getId());
+        }
+        assertThat(statistics.getEntityStatistics(Product.class.getName()).getLoadCount()).isGreaterThanOrEqualTo(READS - 1);
+
+        productService.getProductById(product.getId());
+        long hits = productCache.getStatistics().hits();
+        statistics.clear();
+        for (int i = 0; i < READS; i++) {
+            productService.getProductById(product.getId());
+        }
+
+        assertThat(statistics.getEntityStatistics(Product.class.getName()).getLoadCount()).isZero();
+        assertThat(productCache.getStatistics().hits() - hits).isGreaterThanOrEqualTo(READS - 1);
+    }
+}
@@ -0,0 +1,243 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.order.CheckoutRequest;
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ProductChangeStreamTest {
+
+    private static final String PRODUCTS_STREAM_PATH = "/api/products/stream";
+    private static final String CHANGE_EVENT = "event:change";
+    private static final String DELETED_EVENT = "event:deleted";
+    private static final double NEW_PRICE = 999.5;
+    private static final int STALLED_SUBSCRIBERS = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeStream productChangeStream;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testStream_ShouldSendCurrentValuesThenOneEventPerWindow() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        Product other = productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+
+        MvcResult result = mockMvc.perform(get(PRODUCTS_STREAM_PATH)
+                        .param("ids", product.getId() + "," + other.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitEvents(result, CHANGE_EVENT, 2);
+        assertThat(content(result)).contains("\"stock\":" + PRODUCT_STOCK, "\"stock\":" + PRODUCT_STOCK_ALT);
+
+        orderItemService.createOrderItem(new OrderItem(order, product, 3, PRODUCT_PRICE));
+        orderItemService.checkout(new CheckoutRequest(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS,
+                List.of(new CheckoutRequest.Item(product.getId(), 4, PRODUCT_PRICE))));
+        productService.patchProduct(product.getId(),
+                objectMapper.readTree("{\"price\": " + NEW_PRICE + "}"), null);
+        productService.patchProduct(other.getId(), objectMapper.readTree("{\"name\": \"Renamed\"}"), null);
+        productChangeStream.publish();
+
+        awaitEvents(result, CHANGE_EVENT, 3);
+        assertThat(content(result)).contains("\"price\":" + NEW_PRICE + ",\"stock\":" + (PRODUCT_STOCK - 7));
+
+        productService.deleteProduct(other.getId());
+        productChangeStream.publish();
+        awaitEvents(result, DELETED_EVENT, 1);
+        assertThat(count(content(result), CHANGE_EVENT)).isEqualTo(3);
+        assertThat(productChangeStream.getStatistics().subscribers()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void testStream_ShouldRejectInvalidProductIds() throws Exception {
+        mockMvc.perform(get(PRODUCTS_STREAM_PATH).param("ids", ""))
+                .andExpect(status().isBadRequest());
+
+        String tooMany = LongStream.rangeClosed(1, ProductChangeStream.MAX_PRODUCTS + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(get(PRODUCTS_STREAM_PATH).param("ids", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSubscription_ShouldKeepLatestPerProductWhenConsumerFallsBehind() throws Exception {
+        BlockingEmitter emitter = new BlockingEmitter();
+        AtomicLong conflations = new AtomicLong();
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        try {
+            ProductChangeSubscription subscription = new ProductChangeSubscription(Set.of(1L, 2L), emitter, 2,
+                    sender, conflations, closed -> { });
+
+            subscription.offer(change(1L, 9));
+            assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+            subscription.offer(change(1L, 8));
+            subscription.offer(change(2L, 5));
+            subscription.offer(change(1L, 7));
+            subscription.offer(change(2L, 4));
+            emitter.release.countDown();
+
+            await(() -> emitter.sent.size() == 3);
+            assertThat(emitter.sent).containsExactly(change(1L, 9), change(1L, 7), change(2L, 4));
+            assertThat(conflations.get()).isEqualTo(1);
+        } finally {
+            sender.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStream_ShouldCloseStalledSubscribersWithoutDelayingOthers() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        List<BlockingEmitter> stalled = new ArrayList<>();
+        try {
+            for (int i = 0; i < STALLED_SUBSCRIBERS; i++) {
+                BlockingEmitter emitter = new BlockingEmitter();
+                stalled.add(emitter);
+                productChangeStream.subscribe(Set.of(product.getId()), emitter);
+                assertThat(emitter.sending.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            BlockingEmitter healthy = new BlockingEmitter();
+            healthy.release.countDown();
+            productChangeStream.subscribe(Set.of(product.getId()), healthy);
+            await(() -> healthy.sent.size() == 1);
+
+            productService.patchProduct(product.getId(),
+                    objectMapper.readTree("{\"price\": " + NEW_PRICE + "}"), null);
+            productChangeStream.publish();
+            await(() -> healthy.sent.size() == 2);
+            assertThat(healthy.sent.get(1).price()).isEqualTo(NEW_PRICE);
+
+            long stalledBefore = productChangeStream.getStatistics().stalled();
+            await(() -> {
+                productChangeStream.heartbeat();
+                return stalled.stream().allMatch(emitter -> emitter.failed.getCount() == 0);
+            });
+            assertThat(productChangeStream.getStatistics().stalled() - stalledBefore).isEqualTo(STALLED_SUBSCRIBERS);
+            assertThat(healthy.failed.getCount()).isEqualTo(1);
+        } finally {
+            stalled.forEach(emitter -> emitter.release.countDown());
+        }
+    }
+
+    private static ProductChange change(Long id, int stock) {
+        return new ProductChange(id, PRODUCT_PRICE, stock, false);
+    }
+
+    private static void awaitEvents(MvcResult result, String event, int count) throws Exception {
+        await(() -> count(content(result), event) >= count);
+    }
+
+    private static void await(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.get()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int count(String content, String event) {
+        return content.split(event, -1).length - 1;
+    }
+
+    /**
+     * Blocks every send until released, like a client that stopped reading.
+     */
+    private static class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private final List<ProductChange> sent = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof ProductChange change) {
+                    sent.add(change);
+                }
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable error) {
+            failed.countDown();
+        }
+    }
+}
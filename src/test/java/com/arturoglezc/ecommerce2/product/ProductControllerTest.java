@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -16,11 +17,14 @@ import java.util.Optional;
 import static com.arturoglezc.ecommerce2.helper.JsonPathsTestConstants.*;
 import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -32,6 +36,7 @@ public class ProductControllerTest {
     private static final String PRODUCT_ID_PATH = "/api/products/{id}";
     private static final String GET_ALL_PRODUCTS_PAGING_PATH = "/api/products?page=0&size=2";
     private static final String CREATE_PRODUCT_PATH = "/api/products";
+    private static final String PRODUCT_STOCK_SHARDS_PATH = "/api/products/{id}/stock-shards";
 
     @Autowired
     private MockMvc mockMvc;
@@ -39,11 +44,15 @@ public class ProductControllerTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @AfterEach
     void tearDown() {
+        productStockShardRepository.deleteAll();
         productRepository.deleteAll();
     }
 
@@ -121,4 +130,95 @@ public class ProductControllerTest {
         Optional<Product> deletedProduct = productRepository.findById(product.getId());
         assertTrue(deletedProduct.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEnableStockSharding_ShouldKeepAggregatedStock() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+
+        mockMvc.perform(put(PRODUCT_STOCK_SHARDS_PATH, product.getId())
+                        .param("count", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_STOCK_SHARDS_JSON_PATH).value(4))
+                .andExpect(jsonPath(PRODUCT_STOCK_JSON_PATH).value(PRODUCT_STOCK));
+
+        mockMvc.perform(get(PRODUCT_ID_PATH, product.getId())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_STOCK_JSON_PATH).value(PRODUCT_STOCK));
+
+        mockMvc.perform(delete(PRODUCT_STOCK_SHARDS_PATH, product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_STOCK_SHARDS_JSON_PATH).value(0))
+                .andExpect(jsonPath(PRODUCT_STOCK_JSON_PATH).value(PRODUCT_STOCK));
+    }
+
+    @Test
+    void testGetProductsAfter_ShouldReturnSlicesWithoutCount() throws Exception {
+        productRepository.saveAll(Arrays.asList(
+                new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK),
+                new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT),
+                new Product(PRODUCT_NAME_ALT_2, PRODUCT_PRICE_ALT_2, PRODUCT_STOCK_ALT_2)
+        ));
+
+        String firstSlice = mockMvc.perform(get(CREATE_PRODUCT_PATH)
+                        .param("after", "")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(2)))
+                .andExpect(jsonPath(PRODUCT_NAME_FIRST_ELEMENT_JSON_PATH).value(PRODUCT_NAME))
+                .andExpect(jsonPath(PRODUCT_NAME_SECOND_ELEMENT_JSON_PATH).value(PRODUCT_NAME_ALT))
+                .andExpect(jsonPath(HAS_NEXT_JSON_PATH).value(true))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get(CREATE_PRODUCT_PATH)
+                        .param("after", objectMapper.readTree(firstSlice).get("next").asText())
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(CONTENT_JSON_PATH, hasSize(1)))
+                .andExpect(jsonPath(PRODUCT_NAME_FIRST_ELEMENT_JSON_PATH).value(PRODUCT_NAME_ALT_2))
+                .andExpect(jsonPath(HAS_NEXT_JSON_PATH).value(false));
+    }
+
+    @Test
+    void testGetProductById_ShouldReturnNotModifiedForCurrentETag() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+
+        String eTag = mockMvc.perform(get(PRODUCT_ID_PATH, product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(PRODUCT_ID_PATH, product.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testUpdateProduct_ShouldHonorIfMatch() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        String eTag = mockMvc.perform(get(PRODUCT_ID_PATH, product.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String updatedProductJson = objectMapper.writeValueAsString(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+
+        String newETag = mockMvc.perform(put(PRODUCT_ID_PATH, product.getId())
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updatedProductJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put(PRODUCT_ID_PATH, product.getId())
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updatedProductJson))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get(PRODUCT_ID_PATH, product.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, newETag))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,166 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import com.arturoglezc.ecommerce2.pagination.CountStrategy;
+import com.arturoglezc.ecommerce2.pagination.CountedPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.arturoglezc.ecommerce2.helper.JsonPathsTestConstants.*;
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ProductPageCacheTest {
+
+    private static final String GET_ALL_PRODUCTS_PATH = "/api/products?page=0&size=10";
+    private static final String PRODUCT_STOCK_FIRST_ELEMENT_JSON_PATH = "$.content[0].stock";
+    private static final String GZIP = "gzip";
+    private static final int STOCK = 100;
+    private static final long SMALL_MAX_BYTES = 4_096;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductPageCache productPageCache;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Product product;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, STOCK));
+        order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        productPageCache.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        productPageCache.invalidate();
+    }
+
+    @Test
+    void testGetAllProducts_ShouldServeRepeatedPageWithoutDatabaseAccess() throws Exception {
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH)).andExpect(status().isOk());
+        long hits = productPageCache.getStatistics().hits();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(PRODUCT_NAME_FIRST_ELEMENT_JSON_PATH).value(PRODUCT_NAME))
+                .andExpect(jsonPath(TOTAL_ELEMENTS_JSON_PATH).value(1));
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(productPageCache.getStatistics().hits()).isEqualTo(hits + 1);
+        assertThat(productPageCache.getStatistics().bytes()).isPositive();
+    }
+
+    @Test
+    void testProductWrites_ShouldStartNewGeneration() throws Exception {
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(jsonPath(PRODUCT_STOCK_FIRST_ELEMENT_JSON_PATH).value(STOCK));
+
+        OrderItem orderItem = orderItemService.createOrderItem(new OrderItem(order, product, 3, PRODUCT_PRICE));
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(jsonPath(PRODUCT_STOCK_FIRST_ELEMENT_JSON_PATH).value(STOCK - 3));
+
+        orderItemService.deleteOrderItem(orderItem.getId());
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(jsonPath(PRODUCT_STOCK_FIRST_ELEMENT_JSON_PATH).value(STOCK));
+
+        productService.updateProduct(product.getId(), new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE, STOCK));
+        mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(jsonPath(PRODUCT_NAME_FIRST_ELEMENT_JSON_PATH).value(PRODUCT_NAME_ALT));
+    }
+
+    @Test
+    void testGetAllProducts_ShouldServeGzipWhenAccepted() throws Exception {
+        byte[] json = mockMvc.perform(get(GET_ALL_PRODUCTS_PATH))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        byte[] gzip = mockMvc.perform(get(GET_ALL_PRODUCTS_PATH).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, GZIP))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(json);
+        }
+    }
+
+    @Test
+    void testCachedBytes_ShouldStayBelowMaxBytes() {
+        ProductPageCache smallCache = new ProductPageCache(objectMapper, SMALL_MAX_BYTES, 4, true);
+        List<Product> products = new ArrayList<>();
+        for (int size = 1; size <= 20; size++) {
+            products.add(new Product(PRODUCT_NAME, PRODUCT_PRICE, size));
+            for (int page = 0; page < 4; page++) {
+                PageRequest pageable = PageRequest.of(page, size);
+                List<Product> content = List.copyOf(products);
+                smallCache.get(pageable, true, () -> new CountedPage<>(
+                        new PageImpl<>(content, pageable, content.size()), CountStrategy.EXACT));
+            }
+        }
+
+        ProductPageCacheStatistics statistics = smallCache.getStatistics();
+        assertThat(statistics.pages()).isPositive();
+        assertThat(statistics.bytes()).isPositive().isLessThanOrEqualTo(SMALL_MAX_BYTES);
+    }
+}
@@ -78,4 +78,34 @@ public class ProductRepositoryTest {
         assertThat(products).hasSize(2);
         assertThat(products).contains(testProduct, secondProduct);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDecrementStock_ShouldTakeStockWhenEnoughIsAvailable() {
+        Product savedProduct = productRepository.save(testProduct);
+
+        int updatedRows = productRepository.decrementStock(savedProduct.getId(), PRODUCT_STOCK);
+
+        assertThat(updatedRows).isEqualTo(1);
+        assertThat(productRepository.findById(savedProduct.getId()).orElseThrow().getStock()).isZero();
+    }
+
+    @Test
+    void testDecrementStock_ShouldNotTouchRowWhenNotEnoughStock() {
+        Product savedProduct = productRepository.save(testProduct);
+
+        int updatedRows = productRepository.decrementStock(savedProduct.getId(), PRODUCT_STOCK + 1);
+
+        assertThat(updatedRows).isZero();
+        assertThat(productRepository.findById(savedProduct.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK);
+    }
+
+    @Test
+    void testIncrementStock() {
+        Product savedProduct = productRepository.save(testProduct);
+
+        int updatedRows = productRepository.incrementStock(savedProduct.getId(), PRODUCT_STOCK);
+
+        assertThat(updatedRows).isEqualTo(1);
+        assertThat(productRepository.findById(savedProduct.getId()).orElseThrow().getStock()).isEqualTo(PRODUCT_STOCK * 2);
+    }
+}
@@ -1,5 +1,6 @@
 package com.arturoglezc.ecommerce2.product;
 
+import com.arturoglezc.ecommerce2.pagination.TotalCounts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -9,6 +10,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
@@ -30,6 +32,27 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private ProductPageCache productPageCache;
+
+    @Mock
+    private ProductStockShardService productStockShardService;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductChangeStream productChangeStream;
+
+    @Mock
+    private TotalCounts totalCounts;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private ProductService productService;
 
@@ -107,49 +130,52 @@ public class ProductServiceTest {
 
     @Test
     void testUpdateProduct_ShouldUpdateAndReturnProduct() {
-        when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(1L);
 
+        Long productId = 1L;
         Product updatedProduct = new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT);
-        updatedProduct.setId(testProduct.getId());
-
-        when(productRepository.save(any(Product.class))).thenReturn(updatedProduct);
 
-        Product result = productService.updateProduct(testProduct.getId(), updatedProduct);
+        Product result = productService.updateProduct(productId, updatedProduct);
 
+        assertThat(result.getId()).isEqualTo(productId);
         assertThat(result.getName()).isEqualTo(PRODUCT_NAME_ALT);
         assertThat(result.getPrice()).isEqualTo(PRODUCT_PRICE_ALT);
         assertThat(result.getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+        assertThat(result.getVersion()).isEqualTo(1L);
 
-        verify(productRepository, times(1)).findById(testProduct.getId());
-        verify(productRepository, times(1)).save(any(Product.class));
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
     void testUpdateProduct_ShouldThrowExceptionIfNotFound() {
         Long invalidId = 999L;
-        when(productRepository.findById(invalidId)).thenReturn(Optional.empty());
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+        when(productRepository.findByIdForUpdate(invalidId)).thenReturn(Optional.empty());
 
         Product updatedProduct = new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT);
 
         assertThrows(RuntimeException.class, () -> productService.updateProduct(invalidId, updatedProduct));
 
-        verify(productRepository, times(1)).findById(invalidId);
-        verify(productRepository, never()).save(any(Product.class));
+        verify(productRepository, times(1)).findByIdForUpdate(invalidId);
+        verify(productStockShardService, never()).replaceStock(anyLong(), anyInt());
     }
 
     @Test
     void testDeleteProduct_ShouldDeleteProduct() {
-        when(productRepository.findById(testProduct.getId())).thenReturn(Optional.of(testProduct));
+        when(productRepository.deleteByIdWithoutLoading(testProduct.getId())).thenReturn(1);
 
         productService.deleteProduct(testProduct.getId());
 
-        verify(productRepository, times(1)).findById(testProduct.getId());
-        verify(productRepository, times(1)).deleteById(testProduct.getId());
+        verify(productRepository, never()).findById(any());
+        verify(productStockShardService, times(1)).deleteShards(testProduct.getId());
+        verify(productRepository, times(1)).deleteByIdWithoutLoading(testProduct.getId());
     }
 
     @Test
     void testDeleteProduct_ShouldThrowExceptionIfNotFound() {
-        when(productRepository.findById(testProduct.getId())).thenReturn(Optional.empty());
+        when(productRepository.deleteByIdWithoutLoading(testProduct.getId())).thenReturn(0);
 
         assertThrows(ResponseStatusException.class, () -> {
             productService.deleteProduct(testProduct.getId());
@@ -0,0 +1,167 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.orderitem.OrderItemTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProductStockShardServiceTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    @Autowired
+    private ProductStockShardService productStockShardService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Product product;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productStockShardRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testRebalance_ShouldSpreadStockAcrossShards() {
+        Product shardedProduct = productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        List<ProductStockShard> shards = productStockShardService.getShards(product.getId());
+        assertThat(shards).extracting(ProductStockShard::getStock).containsExactly(4, 3, 3);
+        assertThat(shardedProduct.getStockShards()).isEqualTo(SHARD_COUNT);
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(PRODUCT_STOCK);
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldTakeStockFromShards() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        orderItemService.createOrderItem(new OrderItem(order, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE));
+
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(PRODUCT_STOCK - ORDER_ITEM_QUANTITY);
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldTakeAcrossShardsWhenNoSingleShardIsEnough() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        orderItemService.createOrderItem(new OrderItem(order, product, PRODUCT_STOCK, ORDER_ITEM_UNIT_PRICE));
+
+        assertThat(productService.getProductById(product.getId()).getStock()).isZero();
+        assertThrows(ResponseStatusException.class, () -> orderItemService.createOrderItem(
+                new OrderItem(order, product, 1, ORDER_ITEM_UNIT_PRICE)));
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldCountRowStockWhenTakingAcrossShards() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+        OrderItem returned = orderItemService.createOrderItem(new OrderItem(order, product, 5, ORDER_ITEM_UNIT_PRICE));
+        orderItemService.createOrderItem(new OrderItem(order, product, 2, ORDER_ITEM_UNIT_PRICE));
+        orderItemService.deleteOrderItem(returned.getId());
+
+        orderItemService.createOrderItem(new OrderItem(order, product, 7, ORDER_ITEM_UNIT_PRICE));
+
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(PRODUCT_STOCK - 9);
+        assertThat(productStockShardService.getShards(product.getId()))
+                .extracting(ProductStockShard::getStock).allMatch(stock -> stock >= 0);
+    }
+
+    @Test
+    void testCreateOrderItem_ShouldTakeFromShardsBeforeReturnedRowStock() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+        OrderItem returned = orderItemService.createOrderItem(new OrderItem(order, product, 1, ORDER_ITEM_UNIT_PRICE));
+        orderItemService.deleteOrderItem(returned.getId());
+
+        orderItemService.createOrderItem(new OrderItem(order, product, 1, ORDER_ITEM_UNIT_PRICE));
+
+        assertThat(productStockShardService.getShards(product.getId()).stream()
+                .mapToInt(ProductStockShard::getStock).sum()).isEqualTo(PRODUCT_STOCK - 2);
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(PRODUCT_STOCK - 1);
+    }
+
+    @Test
+    void testDeleteOrderItem_ShouldReturnStockThatRebalanceMovesIntoShards() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+        OrderItem orderItem = orderItemService.createOrderItem(
+                new OrderItem(order, product, ORDER_ITEM_QUANTITY, ORDER_ITEM_UNIT_PRICE));
+
+        orderItemService.deleteOrderItem(orderItem.getId());
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        assertThat(productService.getProductById(product.getId()).getStock()).isEqualTo(PRODUCT_STOCK);
+        assertThat(productStockShardService.getShards(product.getId()))
+                .extracting(ProductStockShard::getStock).containsExactly(4, 3, 3);
+    }
+
+    @Test
+    void testDisableSharding_ShouldFoldShardsBackIntoProduct() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        Product unshardedProduct = productStockShardService.disableSharding(product.getId());
+
+        assertThat(unshardedProduct.getStockShards()).isZero();
+        assertThat(unshardedProduct.getStock()).isEqualTo(PRODUCT_STOCK);
+        assertThat(productStockShardService.getShards(product.getId())).isEmpty();
+    }
+
+    @Test
+    void testUpdateProduct_ShouldSpreadNewStockAcrossShards() {
+        productStockShardService.rebalance(product.getId(), SHARD_COUNT);
+
+        Product updatedProduct = productService.updateProduct(product.getId(),
+                new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+
+        assertThat(updatedProduct.getStock()).isEqualTo(PRODUCT_STOCK_ALT);
+        assertThat(productStockShardService.getShards(product.getId()))
+                .extracting(ProductStockShard::getStock).containsExactly(7, 7, 6);
+    }
+
+    @Test
+    void testRebalance_ShouldRejectInvalidShardCount() {
+        assertThrows(ResponseStatusException.class,
+                () -> productStockShardService.rebalance(product.getId(), 0));
+    }
+}
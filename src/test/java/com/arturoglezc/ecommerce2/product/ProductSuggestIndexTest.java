@@ -0,0 +1,198 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.arturoglezc.ecommerce2.order.Order;
+import com.arturoglezc.ecommerce2.order.OrderRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItem;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemRepository;
+import com.arturoglezc.ecommerce2.orderitem.OrderItemService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.arturoglezc.ecommerce2.order.OrderTestConstants.*;
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ProductSuggestIndexTest {
+
+    private static final String SUGGEST_PATH = "/api/products/suggest";
+    private static final String REBUILD_PATH = "/api/products/suggest/rebuild";
+    private static final int LARGE_CATALOG = 20_000;
+    private static final int QUERIES = 1_000;
+    private static final long MAX_MEDIAN_NANOS = 1_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @BeforeEach
+    void setUp() {
+        productSuggestIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        productSuggestIndex.rebuild();
+    }
+
+    @Test
+    void testSuggest_ShouldRankByMatchQualityThenStock() throws Exception {
+        productService.createProduct(new Product("Gaming Laptop", PRODUCT_PRICE, PRODUCT_STOCK));
+        productService.createProduct(new Product("Laptop Sleeve", PRODUCT_PRICE, 0));
+        productService.createProduct(new Product("Laptop Stand", PRODUCT_PRICE, PRODUCT_STOCK));
+        productService.createProduct(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        productService.createProduct(new Product("Lapis Pen", PRODUCT_PRICE, PRODUCT_STOCK));
+
+        mockMvc.perform(get(SUGGEST_PATH).param("q", "LAPTOP"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].name").value(PRODUCT_NAME))
+                .andExpect(jsonPath("$[1].name").value("Laptop Stand"))
+                .andExpect(jsonPath("$[2].name").value("Laptop Sleeve"))
+                .andExpect(jsonPath("$[2].inStock").value(false))
+                .andExpect(jsonPath("$[3].name").value("Gaming Laptop"));
+
+        mockMvc.perform(get(SUGGEST_PATH).param("q", "lap").param("limit", "2"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void testSuggest_ShouldMatchEveryWordPrefixIgnoringCaseAndAccents() {
+        productService.createProduct(new Product("Café Crème Mug", PRODUCT_PRICE, PRODUCT_STOCK));
+        productService.createProduct(new Product("Crème Brûlée Torch", PRODUCT_PRICE, PRODUCT_STOCK));
+
+        assertThat(productService.suggestProducts("creme caf", 10))
+                .extracting(ProductSuggestion::name)
+                .containsExactly("Café Crème Mug");
+        assertThat(productService.suggestProducts("CRÈME", 10)).hasSize(2);
+        assertThat(productService.suggestProducts("mug tea", 10)).isEmpty();
+    }
+
+    @Test
+    void testProductWrites_ShouldUpdateIndexIncrementally() {
+        Product product = productService.createProduct(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        assertThat(productSuggestIndex.getStatistics().products()).isEqualTo(1);
+
+        productService.updateProduct(product.getId(), new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE, PRODUCT_STOCK));
+        assertThat(productService.suggestProducts("lapt", 10)).isEmpty();
+        assertThat(productService.suggestProducts("keyb", 10))
+                .containsExactly(new ProductSuggestion(product.getId(), PRODUCT_NAME_ALT, true));
+
+        productService.deleteProduct(product.getId());
+        assertThat(productService.suggestProducts("keyb", 10)).isEmpty();
+        assertThat(productSuggestIndex.getStatistics())
+                .isEqualTo(new ProductSuggestIndexStatistics(0, 0, 0, 0));
+    }
+
+    @Test
+    void testRefreshStock_ShouldFlagProductsSoldOut() {
+        Product product = productService.createProduct(new Product(PRODUCT_NAME, PRODUCT_PRICE, 2));
+        Order order = orderRepository.save(new Order(ORDER_CUSTOMER_NAME, ORDER_DATE, ORDER_STATUS));
+        orderItemService.createOrderItem(new OrderItem(order, product, 2, PRODUCT_PRICE));
+
+        productSuggestIndex.refreshStock();
+
+        assertThat(productService.suggestProducts(PRODUCT_NAME, 10))
+                .containsExactly(new ProductSuggestion(product.getId(), PRODUCT_NAME, false));
+    }
+
+    @Test
+    void testRebuild_ShouldIndexProductsWrittenOutsideTheService() throws Exception {
+        productRepository.save(new Product(PRODUCT_NAME_ALT_2, PRODUCT_PRICE_ALT_2, PRODUCT_STOCK_ALT_2));
+        assertThat(productService.suggestProducts(PRODUCT_NAME_ALT_2, 10)).isEmpty();
+
+        mockMvc.perform(post(REBUILD_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products").value(1))
+                .andExpect(jsonPath("$.tokens").value(1));
+
+        assertThat(productService.suggestProducts(PRODUCT_NAME_ALT_2, 10)).hasSize(1);
+    }
+
+    @Test
+    void testSuggest_ShouldRejectLimitOutOfRange() throws Exception {
+        mockMvc.perform(get(SUGGEST_PATH).param("q", PRODUCT_NAME).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSuggest_ShouldAnswerUnderAMillisecondOnLargeCatalog() {
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        Random random = new Random(42);
+        String[] words = new String[500];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = randomWord(random);
+        }
+        for (long id = 1; id <= LARGE_CATALOG; id++) {
+            Product product = new Product(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]
+                    + " " + words[random.nextInt(words.length)], PRODUCT_PRICE, random.nextInt(3));
+            product.setId(id);
+            index.put(product);
+        }
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = words[random.nextInt(words.length)];
+            queries[i] = word.substring(0, 2 + random.nextInt(word.length() - 1));
+        }
+        for (String query : queries) {
+            index.suggest(query, 10);
+        }
+
+        long[] nanos = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            List<ProductSuggestion> suggestions = index.suggest(queries[i], 10);
+            nanos[i] = System.nanoTime() - start;
+            assertThat(suggestions).isNotEmpty();
+        }
+        Arrays.sort(nanos);
+
+        assertThat(nanos[QUERIES / 2]).isLessThan(MAX_MEDIAN_NANOS);
+        assertThat(index.getStatistics().products()).isEqualTo(LARGE_CATALOG);
+    }
+
+    private static String randomWord(Random random) {
+        char[] letters = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,166 @@
+package com.arturoglezc.ecommerce2.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.arturoglezc.ecommerce2.product.ProductTestConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReactiveProductControllerTest {
+
+    private static final String REACTIVE_PRODUCTS_PATH = "/api/reactive/products";
+    private static final String REACTIVE_PRODUCT_ID_PATH = "/api/reactive/products/{id}";
+    private static final String REACTIVE_PRODUCTS_STREAM_PATH = "/api/reactive/products/stream";
+    private static final int CATALOG_SIZE = 2 * ReactiveProductService.STREAM_CHUNK_SIZE + 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReactiveProductService reactiveProductService;
+
+    @MockitoSpyBean
+    private ReactiveProductRepository reactiveProductRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        productStockShardRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testGetProductById_ShouldReadTotalStockOverR2dbc() throws Exception {
+        Product product = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        productService.enableStockSharding(product.getId(), 4);
+
+        MvcResult result = mockMvc.perform(get(REACTIVE_PRODUCT_ID_PATH, product.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(product.getId()))
+                .andExpect(jsonPath("$.name").value(PRODUCT_NAME))
+                .andExpect(jsonPath("$.price").value(PRODUCT_PRICE))
+                .andExpect(jsonPath("$.stock").value(PRODUCT_STOCK))
+                .andExpect(jsonPath("$.stockShards").value(4));
+
+        result = mockMvc.perform(get(REACTIVE_PRODUCT_ID_PATH, Long.MAX_VALUE)).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetProducts_ShouldReturnPageInIdOrder() throws Exception {
+        Product first = productRepository.save(new Product(PRODUCT_NAME, PRODUCT_PRICE, PRODUCT_STOCK));
+        productRepository.save(new Product(PRODUCT_NAME_ALT, PRODUCT_PRICE_ALT, PRODUCT_STOCK_ALT));
+        Product third = productRepository.save(new Product(PRODUCT_NAME_ALT_2, PRODUCT_PRICE_ALT_2, PRODUCT_STOCK_ALT_2));
+
+        MvcResult result = mockMvc.perform(get(REACTIVE_PRODUCTS_PATH).param("page", "0").param("size", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(first.getId()));
+
+        result = mockMvc.perform(get(REACTIVE_PRODUCTS_PATH).param("page", "1").param("size", "2")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(third.getId()));
+
+        result = mockMvc.perform(get(REACTIVE_PRODUCTS_PATH).param("size", "0")).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+        result = mockMvc.perform(get(REACTIVE_PRODUCTS_PATH)
+                .param("size", String.valueOf(ReactiveProductService.MAX_PAGE_SIZE + 1))).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamProducts_ShouldWriteWholeCatalogAsNdjson() throws Exception {
+        seedCatalog();
+
+        MvcResult result = mockMvc.perform(get(REACTIVE_PRODUCTS_STREAM_PATH).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(CATALOG_SIZE);
+        long previousId = Long.MIN_VALUE;
+        for (String line : lines) {
+            long id = objectMapper.readTree(line).get("id").asLong();
+            assertThat(id).isGreaterThan(previousId);
+            previousId = id;
+        }
+    }
+
+    @Test
+    void testStreamProducts_ShouldOnlyQueryNextChunkOnDemand() {
+        seedCatalog();
+        clearInvocations(reactiveProductRepository);
+
+        StepVerifier.create(reactiveProductService.streamProducts(), 0)
+                .thenRequest(ReactiveProductService.STREAM_CHUNK_SIZE - 1)
+                .expectNextCount(ReactiveProductService.STREAM_CHUNK_SIZE - 1)
+                .then(() -> verify(reactiveProductRepository, times(1)).findByIdAfter(anyLong(), anyInt()))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .then(() -> verify(reactiveProductRepository, times(2)).findByIdAfter(anyLong(), anyInt()))
+                .thenCancel()
+                .verify();
+        verify(reactiveProductRepository, times(2)).findByIdAfter(anyLong(), anyInt());
+    }
+
+    private void seedCatalog() {
+        List<Object[]> products = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            products.add(new Object[]{PRODUCT_NAME + " " + i, PRODUCT_PRICE, PRODUCT_STOCK});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product (name, price, stock) VALUES (?, ?, ?)", products);
+    }
+}